@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary image of the complete state of a simulation, so that a run
+ * can be stopped and taken up again later, recovered after a crash, or
+ * started from a prepared world.
+ *
+ * An image is built in memory by the classes holding the state, each
+ * adding its part in turn, into blocks of memory outside the heap. The
+ * blocks are then written to the file in one gathering write on a
+ * FileChannel, which can be done by another thread while the simulation
+ * runs on, since the image no longer depends on the state it was taken
+ * from. The file is written under a temporary name and then moved over
+ * the old one, so a crash while writing leaves the previous checkpoint
+ * whole.
+ *
+ * A checkpoint is read back by mapping its file into memory, a window at
+ * a time, and the values are read in the order they were added. Large
+ * blocks, such as the chunks of the field and the pages of the entity
+ * store, are copied from the mapped file straight into their own memory.
+ * The values are kept in the byte order of the machine, so that those
+ * blocks are copied as they are; a checkpoint can only be read on a
+ * machine with the same byte order as the one that wrote it.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class Checkpoint implements Closeable
+{
+    // The first value of every checkpoint, and the version of the layout.
+    private static final int MAGIC = 0x45434F53;
+    private static final int VERSION = 2;
+    // The size of each block of an image in memory.
+    private static final int BLOCK_BYTES = 1 << 22;
+    // The most of a file mapped into memory at once.
+    private static final int WINDOW_BYTES = 1 << 30;
+
+    // The blocks of an image being built, kept for the next image, and
+    // how many of them hold the current one.
+    private final List<ByteBuffer> blocks;
+    private int blockCount;
+    // The block being filled, or the window of the file being read.
+    private ByteBuffer current;
+    // The file being read, its size, and where the window ends in it.
+    private FileChannel channel;
+    private long fileSize;
+    private long windowEnd;
+    // Room for a value that is split between two blocks or windows.
+    private final ByteBuffer scratch;
+
+    /**
+     * Create an empty image, ready for the state of a simulation to be
+     * added to it.
+     */
+    public Checkpoint()
+    {
+        blocks = new ArrayList<>();
+        scratch = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder());
+        clear();
+    }
+
+    /**
+     * Create a checkpoint for reading from a file.
+     * @param channel The open file.
+     * @throws IOException If the size of the file cannot be read.
+     */
+    private Checkpoint(FileChannel channel) throws IOException
+    {
+        blocks = new ArrayList<>();
+        scratch = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder());
+        this.channel = channel;
+        fileSize = channel.size();
+        windowEnd = 0;
+        current = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Open a checkpoint file, ready for the state it holds to be read.
+     * @param fileName The name of the file.
+     * @return The checkpoint, positioned after its header.
+     * @throws IOException If the file cannot be read or is not a
+     *                     checkpoint this version can read.
+     */
+    public static Checkpoint open(String fileName) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        Checkpoint image;
+        try {
+            image = new Checkpoint(channel);
+            int magic = image.getInt();
+            if(magic == Integer.reverseBytes(MAGIC)) {
+                throw new IOException(fileName + " was written on a machine of the other byte order");
+            }
+            if(magic != MAGIC || image.getInt() != VERSION || image.getInt() != Species.COUNT) {
+                throw new IOException(fileName + " is not a checkpoint of this simulation");
+            }
+        }
+        catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+        return image;
+    }
+
+    /**
+     * Empty the image and start it with the header of a checkpoint. The
+     * memory of the image is kept for the new one.
+     */
+    public void clear()
+    {
+        blockCount = 0;
+        current = null;
+        putInt(MAGIC);
+        putInt(VERSION);
+        putInt(Species.COUNT);
+    }
+
+    /**
+     * Write the image to a file, replacing the checkpoint it held only
+     * once the new one is complete. The image must not be changed while
+     * it is being written.
+     * @param fileName The name of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeTo(String fileName) throws IOException
+    {
+        Path file = Paths.get(fileName);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer[] buffers = new ByteBuffer[blockCount];
+        long remaining = 0;
+        for(int n = 0; n < blockCount; n++) {
+            buffers[n] = blocks.get(n).duplicate().flip();
+            remaining += buffers[n].remaining();
+        }
+        try(FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                               StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(remaining > 0) {
+                remaining -= out.write(buffers);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Close the file of a checkpoint being read. The image of one being
+     * built is kept.
+     * @throws IOException If the file cannot be closed.
+     */
+    public void close() throws IOException
+    {
+        if(channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @param value A value to add to the image.
+     */
+    void putInt(int value)
+    {
+        if(current != null && current.remaining() >= Integer.BYTES) {
+            current.putInt(value);
+        }
+        else {
+            scratch.putInt(0, value);
+            put(scratch, 0, Integer.BYTES);
+        }
+    }
+
+    /**
+     * @param value A value to add to the image.
+     */
+    void putLong(long value)
+    {
+        if(current != null && current.remaining() >= Long.BYTES) {
+            current.putLong(value);
+        }
+        else {
+            scratch.putLong(0, value);
+            put(scratch, 0, Long.BYTES);
+        }
+    }
+
+    /**
+     * @param values The values to add to the image.
+     * @param count The number of values, from the first.
+     */
+    void putInts(int[] values, int count)
+    {
+        for(int n = 0; n < count; n++) {
+            putInt(values[n]);
+        }
+    }
+
+    /**
+     * @param values The values to add to the image.
+     * @param count The number of values, from the first.
+     */
+    void putLongs(long[] values, int count)
+    {
+        for(int n = 0; n < count; n++) {
+            putLong(values[n]);
+        }
+    }
+
+    /**
+     * Add a block of memory to the image, as it is.
+     * @param memory The memory.
+     * @param offset Where the block starts in the memory.
+     * @param length The size of the block, in bytes.
+     */
+    void put(ByteBuffer memory, int offset, int length)
+    {
+        while(length > 0) {
+            if(current == null || !current.hasRemaining()) {
+                nextBlock();
+            }
+            int part = Math.min(length, current.remaining());
+            current.put(current.position(), memory, offset, part);
+            current.position(current.position() + part);
+            offset += part;
+            length -= part;
+        }
+    }
+
+    /**
+     * @return The next value of the checkpoint.
+     * @throws IOException If the file cannot be read or ends early.
+     */
+    int getInt() throws IOException
+    {
+        if(current.remaining() >= Integer.BYTES) {
+            return current.getInt();
+        }
+        get(scratch, 0, Integer.BYTES);
+        return scratch.getInt(0);
+    }
+
+    /**
+     * @return The next value of the checkpoint.
+     * @throws IOException If the file cannot be read or ends early.
+     */
+    long getLong() throws IOException
+    {
+        if(current.remaining() >= Long.BYTES) {
+            return current.getLong();
+        }
+        get(scratch, 0, Long.BYTES);
+        return scratch.getLong(0);
+    }
+
+    /**
+     * Read the next value of the checkpoint, which must be a count or
+     * an index no greater than a limit.
+     * @param limit The greatest value allowed.
+     * @return The value.
+     * @throws IOException If the file cannot be read, ends early, or the
+     *                     value is out of range.
+     */
+    int getCount(long limit) throws IOException
+    {
+        int value = getInt();
+        if(value < 0 || value > limit) {
+            throw new IOException("The checkpoint is damaged");
+        }
+        return value;
+    }
+
+    /**
+     * @param values The array to read the next values of the checkpoint
+     *               into.
+     * @param count The number of values, from the first.
+     * @throws IOException If the file cannot be read or ends early.
+     */
+    void getInts(int[] values, int count) throws IOException
+    {
+        for(int n = 0; n < count; n++) {
+            values[n] = getInt();
+        }
+    }
+
+    /**
+     * @param values The array to read the next values of the checkpoint
+     *               into.
+     * @param count The number of values, from the first.
+     * @throws IOException If the file cannot be read or ends early.
+     */
+    void getLongs(long[] values, int count) throws IOException
+    {
+        for(int n = 0; n < count; n++) {
+            values[n] = getLong();
+        }
+    }
+
+    /**
+     * Copy the next block of the checkpoint into memory, as it is.
+     * @param memory The memory.
+     * @param offset Where the block goes in the memory.
+     * @param length The size of the block, in bytes.
+     * @throws IOException If the file cannot be read or ends early.
+     */
+    void get(ByteBuffer memory, int offset, int length) throws IOException
+    {
+        while(length > 0) {
+            if(!current.hasRemaining()) {
+                nextWindow();
+            }
+            int part = Math.min(length, current.remaining());
+            memory.put(offset, current, current.position(), part);
+            current.position(current.position() + part);
+            offset += part;
+            length -= part;
+        }
+    }
+
+    /**
+     * Move on to the next block of the image, allocating it if the image
+     * has not been this large before.
+     */
+    private void nextBlock()
+    {
+        if(blockCount == blocks.size()) {
+            blocks.add(ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.nativeOrder()));
+        }
+        current = blocks.get(blockCount++);
+        current.clear();
+    }
+
+    /**
+     * Map the next window of the file being read.
+     * @throws IOException If the file cannot be mapped or has no more.
+     */
+    private void nextWindow() throws IOException
+    {
+        if(windowEnd == fileSize) {
+            throw new EOFException("The checkpoint ends early");
+        }
+        long size = Math.min(WINDOW_BYTES, fileSize - windowEnd);
+        current = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size).order(ByteOrder.nativeOrder());
+        windowEnd += size;
+    }
+}
@@ -0,0 +1,722 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A compact store for the participants of the simulation. Rather than
+ * keeping one object per animal, the state of every entity is held in a
+ * fixed-size record indexed by entity number: its species, age, food
+ * level, gender, whether it is alive and the cell of the field it
+ * occupies.
+ *
+ * The records are kept outside the Java heap, in pages of PAGE_SIZE
+ * records taken from a MemoryArena, so the heap and the work of the
+ * garbage collector stay small however many entities there are. The
+ * store grows a page at a time, and never copies the records it has.
+ *
+ * Age and hunger are not counted entity by entity. Each species has an
+ * age clock and a hunger clock, moved on by one tick in every step in
+ * which the species ages or grows hungrier, and an entity keeps the tick
+ * of its age clock at which it was born, and its food level together with
+ * the tick of its hunger clock at which it was set. Its age and food
+ * level are worked out from these when they are asked for, so an entity
+ * costs nothing in a step in which it only ages and grows hungrier.
+ *
+ * Dead entities keep their slot until compact() is called, so entity
+ * numbers stay stable for the whole of a simulation step. An entity can
+ * also be given an id, which stays the same when compact() moves it to
+ * another slot, and is only reused once the entity has died and been
+ * compacted away. A dead entity can also be revived as a newborn of its
+ * species in the same slot, keeping its id, so that births can reuse the
+ * slots of the animals that died before them. Threads running at once
+ * put births into small blocks of slots they take as they need them, and
+ * compact() puts the births they list after the other entities, in the
+ * order they were listed, so the store comes out the same whatever order
+ * the blocks were taken in. The store keeps the species and entity
+ * planes of its field up to date as entities are added, moved and
+ * killed.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class EntityStore
+{
+    // The number of ids the store can hand out before it first grows.
+    private static final int INITIAL_CAPACITY = 1024;
+    // The number of low bits of an entity number that give its place
+    // within a page, and the number of records in a page.
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    // The number of slots in a block reserved for births.
+    public static final int BLOCK_SIZE = 64;
+
+    // Where each field of an entity lies within its record: the tick of
+    // its species' age clock at which it was born, the tick of its
+    // species' hunger clock at which its food level was last set, the
+    // row-major index of the cell it occupies, its food level when it was
+    // last set, its id or -1 if it has none, its gender (F = Female,
+    // M = Male), its species id, and 1 if it is alive or 0 if not.
+    private static final int BORN = 0;
+    private static final int FED = 8;
+    private static final int CELL = 16;
+    private static final int FOOD_LEVEL = 24;
+    private static final int ID = 28;
+    private static final int GENDER = 32;
+    private static final int SPECIES = 34;
+    private static final int ALIVE = 35;
+    // The size of a record, a whole number of longs.
+    private static final int RECORD_BYTES = 40;
+
+    // The pages of records, and the memory they are taken from. The pages
+    // are replaced, never changed, when the store grows, so threads
+    // taking blocks of slots always see a whole set of pages.
+    private volatile ByteBuffer[] pages;
+    private int pageCount;
+    private final MemoryArena arena;
+    // The number of entity slots in use.
+    private int size;
+    // The number of slots in use when the first block of births since the
+    // last compact() was reserved, or -1 if none has been.
+    private int blocksStart;
+    // The slots of the births put into blocks, in the order they must
+    // keep, and how many there are.
+    private int[] births;
+    private int birthCount;
+
+    // The age clock and the hunger clock of each species.
+    private final long[] ageClock;
+    private final long[] hungerClock;
+
+    // The slot of the entity holding each id.
+    private int[] slotOfId;
+    // The ids that have been released, and how many there are.
+    private int[] freeIds;
+    private int freeIdCount;
+    // The number of ids handed out so far.
+    private int idCount;
+
+    // The field the entities live in.
+    private Field field;
+
+    /**
+     * Create an empty store for the entities of a field.
+     * @param field The field the entities live in.
+     */
+    public EntityStore(Field field)
+    {
+        arena = new MemoryArena(PAGE_SIZE * RECORD_BYTES);
+        pages = new ByteBuffer[16];
+        pageCount = 0;
+        ageClock = new long[Species.COUNT];
+        hungerClock = new long[Species.COUNT];
+        slotOfId = new int[INITIAL_CAPACITY];
+        freeIds = new int[INITIAL_CAPACITY];
+        this.field = field;
+        size = 0;
+        blocksStart = -1;
+        births = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a live entity to the store.
+     * @param speciesId The species of the entity.
+     * @param entityAge The age of the entity.
+     * @param food The food level of the entity.
+     * @param entityGender The gender of the entity.
+     * @param where The cell the entity occupies.
+     * @return The number of the new entity.
+     */
+    public int add(byte speciesId, int entityAge, int food, char entityGender, long where)
+    {
+        if(size == capacity()) {
+            grow(size + 1);
+        }
+        int index = size++;
+        set(index, speciesId, entityAge, food, entityGender, where);
+        return index;
+    }
+
+    /**
+     * Reserve a block of empty slots at the end of the store. Entities can
+     * later be set into the block, from several threads at once provided
+     * each thread has a block of its own. Slots that are left empty are
+     * dropped by the next compact().
+     * @param count The number of slots to reserve.
+     * @return The number of the first slot in the block.
+     */
+    public int reserve(int count)
+    {
+        if(size + count > capacity()) {
+            grow(size + count);
+        }
+        int first = size;
+        for(int index = first; index < first + count; index++) {
+            setAlive(index, false);
+            setIdAt(index, -1);
+        }
+        size += count;
+        return first;
+    }
+
+    /**
+     * Reserve a block of BLOCK_SIZE slots at the end of the store for the
+     * births of one thread. Threads take blocks as they need them, so the
+     * order of the blocks differs from run to run; the births must be
+     * listed with addBirths() for compact() to put them in an order that
+     * does not. The slots are left as they are, and those not listed are
+     * dropped by the next compact() without being looked at.
+     * @return The number of the first slot in the block.
+     */
+    public synchronized int reserveBlock()
+    {
+        if(blocksStart < 0) {
+            blocksStart = size;
+        }
+        if(size + BLOCK_SIZE > capacity()) {
+            grow(size + BLOCK_SIZE);
+        }
+        int first = size;
+        size += BLOCK_SIZE;
+        return first;
+    }
+
+    /**
+     * List births put into blocks taken with reserveBlock(). compact()
+     * keeps the entities listed that are still alive, in the order they
+     * were listed, after every other entity.
+     * @param slots The slots of the births.
+     * @param count The number of births.
+     */
+    public void addBirths(int[] slots, int count)
+    {
+        if(birthCount + count > births.length) {
+            births = Arrays.copyOf(births, Math.max(birthCount + count, births.length * 2));
+        }
+        System.arraycopy(slots, 0, births, birthCount, count);
+        birthCount += count;
+    }
+
+    /**
+     * Put a live entity into a slot reserved with reserve() or
+     * reserveBlock().
+     * @param index The slot.
+     * @param speciesId The species of the entity.
+     * @param entityAge The age of the entity.
+     * @param food The food level of the entity.
+     * @param entityGender The gender of the entity.
+     * @param where The cell the entity occupies.
+     */
+    public void set(int index, byte speciesId, int entityAge, int food, char entityGender, long where)
+    {
+        ByteBuffer page = pageOf(index);
+        int record = recordOf(index);
+        page.put(record + SPECIES, speciesId);
+        page.putLong(record + BORN, ageClock[speciesId] - entityAge);
+        page.putInt(record + FOOD_LEVEL, food);
+        page.putLong(record + FED, hungerClock[speciesId]);
+        page.putChar(record + GENDER, entityGender);
+        page.put(record + ALIVE, (byte) 1);
+        page.putLong(record + CELL, where);
+        page.putInt(record + ID, -1);
+        field.placeEntity(speciesId, index, entityGender, where);
+    }
+
+    /**
+     * Bring a dead entity back as a newborn of the same species in its
+     * slot, keeping its id, rather than taking a new slot and id. The
+     * slot must not be compacted away or run in the meantime.
+     * @param index The dead entity.
+     * @param speciesId The species of the newborn, which must be that of
+     *                  the dead entity.
+     * @param entityAge The age of the newborn.
+     * @param food The food level of the newborn.
+     * @param entityGender The gender of the newborn.
+     * @param where The cell the newborn occupies.
+     */
+    public void revive(int index, byte speciesId, int entityAge, int food, char entityGender, long where)
+    {
+        int entityId = idAt(index);
+        set(index, speciesId, entityAge, food, entityGender, where);
+        setIdAt(index, entityId);
+    }
+
+    /**
+     * Mark an entity as dead and release the cell it occupies.
+     * @param index The entity.
+     */
+    public void kill(int index)
+    {
+        if(isAlive(index)) {
+            setAlive(index, false);
+            field.clear(getCell(index));
+        }
+    }
+
+    /**
+     * Move an entity to a new cell.
+     * @param index The entity.
+     * @param where The cell to move to.
+     */
+    public void move(int index, long where)
+    {
+        field.clear(getCell(index));
+        pageOf(index).putLong(recordOf(index) + CELL, where);
+        field.placeEntity(getSpecies(index), index, getGender(index), where);
+    }
+
+    /**
+     * Return the entity occupying a cell.
+     * @param where The cell.
+     * @return The entity in the cell, or -1 if the cell is empty.
+     */
+    public int indexAt(long where)
+    {
+        return field.getEntityAt(where);
+    }
+
+    /**
+     * Remove all dead entities from the store in a single pass, and
+     * release their ids. The remaining entities keep their relative order
+     * and their ids, but their numbers change. Births put into blocks
+     * come after the others, in the order given to addBirths().
+     */
+    public void compact()
+    {
+        int live;
+        if(blocksStart < 0) {
+            live = compact(0, size, 0);
+        }
+        else {
+            int copies = copyBirths();
+            live = compact(0, blocksStart, 0);
+            live = compact(size, size + copies, live);
+            blocksStart = -1;
+            birthCount = 0;
+        }
+        size = live;
+    }
+
+    /**
+     * Move the live entities of a range of slots down to the slots from
+     * the given one, in order, and release the ids of the dead ones.
+     * @param from The first slot of the range.
+     * @param to The slot after the last.
+     * @param live The slot to move the first live entity to.
+     * @return The slot after the last live entity moved.
+     */
+    private int compact(int from, int to, int live)
+    {
+        for(int index = from; index < to; index++) {
+            int entityId = idAt(index);
+            if(isAlive(index)) {
+                if(live != index) {
+                    ByteBuffer source = pageOf(index);
+                    ByteBuffer target = pageOf(live);
+                    target.put(recordOf(live), source, recordOf(index), RECORD_BYTES);
+                    if(entityId >= 0) {
+                        slotOfId[entityId] = live;
+                    }
+                    field.placeEntity(getSpecies(live), live, getGender(live), getCell(live));
+                }
+                live++;
+            }
+            else if(entityId >= 0) {
+                releaseId(entityId);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Copy the births listed with addBirths() that are still alive to the
+     * slots after the end of the store, in the order they were listed,
+     * and release the ids of those that have died.
+     * @return The number of births copied.
+     */
+    private int copyBirths()
+    {
+        grow(size + birthCount);
+        int copies = 0;
+        for(int n = 0; n < birthCount; n++) {
+            int index = births[n];
+            if(isAlive(index)) {
+                int copy = size + copies++;
+                pageOf(copy).put(recordOf(copy), pageOf(index), recordOf(index), RECORD_BYTES);
+            }
+            else if(idAt(index) >= 0) {
+                releaseId(idAt(index));
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Release the id of an entity that has died. The id no longer leads
+     * to a slot, since which slot a birth had depends on the order its
+     * thread took a block in.
+     * @param entityId The id.
+     */
+    private void releaseId(int entityId)
+    {
+        slotOfId[entityId] = -1;
+        freeIds[freeIdCount++] = entityId;
+    }
+
+    /**
+     * Remove every entity from the store, release every id and put the
+     * clocks of every species back to tick 0.
+     */
+    public void clear()
+    {
+        for(int index = 0; index < size; index++) {
+            if(isAlive(index)) {
+                field.clear(getCell(index));
+            }
+        }
+        size = 0;
+        blocksStart = -1;
+        birthCount = 0;
+        freeIdCount = 0;
+        idCount = 0;
+        Arrays.fill(ageClock, 0);
+        Arrays.fill(hungerClock, 0);
+    }
+
+    /**
+     * Add the store to a checkpoint: the clocks of every species, the ids
+     * handed out and released, and the records of every slot in use, a
+     * page at a time, as they are.
+     * @param image The checkpoint being built.
+     */
+    void writeTo(Checkpoint image)
+    {
+        image.putInt(size);
+        image.putLongs(ageClock, Species.COUNT);
+        image.putLongs(hungerClock, Species.COUNT);
+        image.putInt(idCount);
+        image.putInts(slotOfId, idCount);
+        image.putInt(freeIdCount);
+        image.putInts(freeIds, freeIdCount);
+        for(int first = 0; first < size; first += PAGE_SIZE) {
+            image.put(pageOf(first), 0, Math.min(PAGE_SIZE, size - first) * RECORD_BYTES);
+        }
+    }
+
+    /**
+     * Replace the contents of the empty store with those read from a
+     * checkpoint written by writeTo(). The field is not changed, since
+     * its entity plane is restored along with the rest of it. There can
+     * be no more entities, or ids, than the field has cells.
+     * @param image The checkpoint being read.
+     * @throws IOException If the checkpoint cannot be read, or holds more
+     *                     entities than fit the field or an id that
+     *                     leads to no entity.
+     */
+    void readFrom(Checkpoint image) throws IOException
+    {
+        long cells = (long) field.getDepth() * field.getWidth();
+        int count = image.getCount(cells);
+        grow(count);
+        image.getLongs(ageClock, Species.COUNT);
+        image.getLongs(hungerClock, Species.COUNT);
+        idCount = image.getCount(cells);
+        if(idCount > slotOfId.length) {
+            slotOfId = new int[idCount];
+            freeIds = new int[idCount];
+        }
+        image.getInts(slotOfId, idCount);
+        for(int entityId = 0; entityId < idCount; entityId++) {
+            if(slotOfId[entityId] < -1 || slotOfId[entityId] >= count) {
+                throw new IOException("The checkpoint is damaged");
+            }
+        }
+        freeIdCount = image.getCount(idCount);
+        image.getInts(freeIds, freeIdCount);
+        for(int n = 0; n < freeIdCount; n++) {
+            if(freeIds[n] < 0 || freeIds[n] >= idCount) {
+                throw new IOException("The checkpoint is damaged");
+            }
+        }
+        for(int first = 0; first < count; first += PAGE_SIZE) {
+            image.get(pageOf(first), 0, Math.min(PAGE_SIZE, count - first) * RECORD_BYTES);
+        }
+        size = count;
+    }
+
+    /**
+     * @return The number of entity slots in use, including dead entities
+     *         that have not yet been compacted away.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index The entity.
+     * @return The species id of the entity.
+     */
+    public byte getSpecies(int index)
+    {
+        return pageOf(index).get(recordOf(index) + SPECIES);
+    }
+
+    /**
+     * @param index The entity.
+     * @return The age of the entity: the ticks of its species' age clock
+     *         since it was born.
+     */
+    public int getAge(int index)
+    {
+        return (int) (ageClock[getSpecies(index)] - pageOf(index).getLong(recordOf(index) + BORN));
+    }
+
+    /**
+     * @param index The entity.
+     * @param entityAge The new age of the entity.
+     */
+    public void setAge(int index, int entityAge)
+    {
+        pageOf(index).putLong(recordOf(index) + BORN, ageClock[getSpecies(index)] - entityAge);
+    }
+
+    /**
+     * @param index The entity.
+     * @return The food level of the entity: the level it was last set to,
+     *         less the ticks of its species' hunger clock since.
+     */
+    public int getFoodLevel(int index)
+    {
+        ByteBuffer page = pageOf(index);
+        int record = recordOf(index);
+        long since = hungerClock[page.get(record + SPECIES)] - page.getLong(record + FED);
+        return page.getInt(record + FOOD_LEVEL) - (int) since;
+    }
+
+    /**
+     * @param index The entity.
+     * @param food The new food level of the entity.
+     */
+    public void setFoodLevel(int index, int food)
+    {
+        ByteBuffer page = pageOf(index);
+        int record = recordOf(index);
+        page.putInt(record + FOOD_LEVEL, food);
+        page.putLong(record + FED, hungerClock[page.get(record + SPECIES)]);
+    }
+
+    /**
+     * Return the tick of its species' age clock at which an entity grows
+     * too old, unless it dies before.
+     * @param index The entity.
+     * @param maxAge The greatest age the entity can live to.
+     * @return The tick at which its age is first above maxAge.
+     */
+    public long getOldAgeTick(int index, int maxAge)
+    {
+        return pageOf(index).getLong(recordOf(index) + BORN) + maxAge + 1;
+    }
+
+    /**
+     * Return the tick of its species' hunger clock at which an entity
+     * starves, unless it eats or dies before: the first tick after its
+     * food level was set at which the level is no longer above 0.
+     * @param index The entity.
+     * @return The tick at which it starves.
+     */
+    public long getStarvationTick(int index)
+    {
+        ByteBuffer page = pageOf(index);
+        int record = recordOf(index);
+        return page.getLong(record + FED) + Math.max(page.getInt(record + FOOD_LEVEL), 1);
+    }
+
+    /**
+     * Move the age clock of a species on by one tick, which makes every
+     * entity of the species a step older.
+     * @param speciesId The species.
+     * @return The new tick of the clock.
+     */
+    public long tickAge(byte speciesId)
+    {
+        return ++ageClock[speciesId];
+    }
+
+    /**
+     * Move the hunger clock of a species on by one tick, which lowers the
+     * food level of every entity of the species by one.
+     * @param speciesId The species.
+     * @return The new tick of the clock.
+     */
+    public long tickHunger(byte speciesId)
+    {
+        return ++hungerClock[speciesId];
+    }
+
+    /**
+     * @param speciesId The species.
+     * @return The current tick of the age clock of the species.
+     */
+    public long getAgeClock(byte speciesId)
+    {
+        return ageClock[speciesId];
+    }
+
+    /**
+     * @param speciesId The species.
+     * @return The current tick of the hunger clock of the species.
+     */
+    public long getHungerClock(byte speciesId)
+    {
+        return hungerClock[speciesId];
+    }
+
+    /**
+     * Return the id of an entity, giving it one if it has none yet. Ids
+     * may only be handed out from one thread at a time.
+     * @param index The entity.
+     * @return The id of the entity.
+     */
+    public int getId(int index)
+    {
+        int entityId = idAt(index);
+        if(entityId < 0) {
+            int newId;
+            if(freeIdCount > 0) {
+                newId = freeIds[--freeIdCount];
+            }
+            else {
+                newId = idCount++;
+                if(newId == slotOfId.length) {
+                    slotOfId = Arrays.copyOf(slotOfId, newId * 2);
+                    freeIds = Arrays.copyOf(freeIds, newId * 2);
+                }
+            }
+            setIdAt(index, newId);
+            slotOfId[newId] = index;
+            entityId = newId;
+        }
+        return entityId;
+    }
+
+    /**
+     * @param index The entity.
+     * @return true if the entity has been given an id.
+     */
+    public boolean hasId(int index)
+    {
+        return idAt(index) >= 0;
+    }
+
+    /**
+     * @param entityId The id of an entity that has not been compacted away.
+     * @return The number of the entity.
+     */
+    public int indexOf(int entityId)
+    {
+        return slotOfId[entityId];
+    }
+
+    /**
+     * @param index The entity.
+     * @return The gender of the entity, F = Female, M = Male.
+     */
+    public char getGender(int index)
+    {
+        return pageOf(index).getChar(recordOf(index) + GENDER);
+    }
+
+    /**
+     * @param index The entity.
+     * @return true if the entity is alive.
+     */
+    public boolean isAlive(int index)
+    {
+        return pageOf(index).get(recordOf(index) + ALIVE) != 0;
+    }
+
+    /**
+     * @param index The entity.
+     * @return The cell occupied by the entity.
+     */
+    public long getCell(int index)
+    {
+        return pageOf(index).getLong(recordOf(index) + CELL);
+    }
+
+    /**
+     * @param index The entity.
+     * @return The id of the entity, or -1.
+     */
+    private int idAt(int index)
+    {
+        return pageOf(index).getInt(recordOf(index) + ID);
+    }
+
+    /**
+     * @param index The entity.
+     * @param entityId The id of the entity, or -1.
+     */
+    private void setIdAt(int index, int entityId)
+    {
+        pageOf(index).putInt(recordOf(index) + ID, entityId);
+    }
+
+    /**
+     * @param index The entity.
+     * @param isAlive Whether the entity is alive.
+     */
+    private void setAlive(int index, boolean isAlive)
+    {
+        pageOf(index).put(recordOf(index) + ALIVE, (byte) (isAlive ? 1 : 0));
+    }
+
+    /**
+     * @param index The entity.
+     * @return The page holding the record of the entity.
+     */
+    private ByteBuffer pageOf(int index)
+    {
+        return pages[index >>> PAGE_BITS];
+    }
+
+    /**
+     * @param index The entity.
+     * @return Where the record of the entity starts within its page.
+     */
+    private static int recordOf(int index)
+    {
+        return (index & PAGE_MASK) * RECORD_BYTES;
+    }
+
+    /**
+     * @return The number of entities the store can hold without growing.
+     */
+    private int capacity()
+    {
+        return pageCount << PAGE_BITS;
+    }
+
+    /**
+     * Add pages until the store can hold the given number of entities.
+     * The pages are put into a new array, which replaces the old one once
+     * it is complete.
+     * @param minimum The number of entities the store must be able to hold.
+     */
+    private void grow(int minimum)
+    {
+        if(capacity() >= minimum) {
+            return;
+        }
+        ByteBuffer[] grown = pages.clone();
+        while(capacity() < minimum) {
+            if(pageCount == grown.length) {
+                grown = Arrays.copyOf(grown, pageCount * 2);
+            }
+            grown[pageCount++] = arena.allocate().order(ByteOrder.nativeOrder());
+        }
+        pages = grown;
+    }
+}
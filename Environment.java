@@ -0,0 +1,73 @@
+/**
+ * The conditions of one step of the simulation: the step number, whether
+ * it is day or night, and the weather. The Simulator creates one
+ * Environment per step and passes it to every animal, so that each animal
+ * can pick its behaviour without working the conditions out again.
+ * An Environment never changes once it has been created.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public final class Environment
+{
+    /**
+     * The two halves of the day and night cycle.
+     */
+    public enum Phase
+    {
+        DAY, NIGHT
+    }
+
+    // The step of the simulation.
+    private final int step;
+    // Whether it is day or night.
+    private final Phase phase;
+    // The weather during the step.
+    private final Weather weather;
+
+    /**
+     * Create the conditions of a step.
+     * @param step The step of the simulation.
+     * @param phase Whether it is day or night.
+     * @param weather The weather during the step.
+     */
+    public Environment(int step, Phase phase, Weather weather)
+    {
+        this.step = step;
+        this.phase = phase;
+        this.weather = weather;
+    }
+
+    /**
+     * @return The step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return Whether it is day or night.
+     */
+    public Phase getPhase()
+    {
+        return phase;
+    }
+
+    /**
+     * @return The weather during the step.
+     */
+    public Weather getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * Return a string describing the conditions.
+     * @return The step, phase and weather.
+     */
+    public String toString()
+    {
+        return "step " + step + ", " + phase + ", " + weather;
+    }
+}
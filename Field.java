@@ -1,25 +1,151 @@
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
+ *
+ * The grid is cut into square chunks of CHUNK_SIZE by CHUNK_SIZE cells,
+ * and a chunk is only allocated once something is placed in one of its
+ * cells. A chunk that empties again is freed, so a field costs memory in
+ * proportion to the area its populations cover rather than to its size,
+ * and very large fields with clustered populations can be simulated.
+ * Cells of a chunk that has not been allocated read as empty.
+ *
+ * Within a chunk the cells are kept in flat, row-major planes: a
+ * species-id plane, and an entity-index plane giving the record of the
+ * animal in its EntityStore. The planes live in a block of memory outside
+ * the Java heap, taken from a MemoryArena and read in the native byte
+ * order, so the heap holds a few small objects per chunk and the garbage
+ * collector does the same work whatever the size of the field.
+ *
+ * The field also holds the plants itself, as a dense layer rather than
+ * as entities: a cell holding a plant has the PLANT species id and no
+ * entity, and the water level and age of its plant are kept in planes of
+ * their own, so every plant ages and dies on its own. Herbivores find
+ * and eat plants through the species plane like any other prey.
+ *
+ * Alongside these each chunk keeps bit planes, one long word per row of
+ * the chunk: one plane per species, one for the cells holding anything,
+ * one for the cells holding a female, and one for cells marked by the
+ * caller. The neighbours of a cell can then be sorted into prey, mates
+ * and free cells with a few shifts and masks rather than by looking at
+ * each of them, reading across the edges of chunks where they meet.
+ * Words never span two rows, so threads working on different rows never
+ * write to the same word.
+ *
+ * Activity is also tracked region by region, a region being the area
+ * of one chunk: which regions of each chunk row are allocated, how
+ * many cells of each chunk are occupied, and when each region last
+ * changed. Sweeps over the field can then skip empty regions, and views
+ * can redraw only the regions that changed since they last looked.
+ *
+ * The free cells of each chunk row, and of each region of the chunk rows
+ * that have been allocated, are kept in Fenwick trees, so an empty cell
+ * can be chosen uniformly at random in time logarithmic in the number of
+ * regions, however crowded the field is: the trees lead to a region, and
+ * the bit plane of its chunk to a cell. The trees are brought up to date
+ * from the occupancy of the chunks changed since they were last used.
+ *
+ * The field also keeps the number of cells holding each species up to
+ * date as cells are placed and cleared, so the population can be read
+ * without scanning the grid. While several threads change the field at
+ * once, each counts into a stripe of its own, and the stripes are added
+ * back into the totals once the threads are done.
  * 
  * @author Aamir Faaiz
  * @version Feb-2019
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // The number of cells adjacent to a cell away from the edges.
+    static final int ADJACENT_COUNT = 8;
+    // The row and column offsets of the adjacent cells.
+    static final int[] ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    static final int[] COL_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // The number of orderings of the adjacent cells (8!).
+    private static final int PERMUTATION_COUNT = 40320;
+    // Every ordering of the indices into the offset tables.
+    static final byte[] PERMUTATIONS = buildPermutations();
     
+    // The number of low bits of a row or column that give its place
+    // within a chunk.
+    static final int CHUNK_BITS = 6;
+    // The number of rows and columns of a chunk. A row of a chunk is one
+    // long word of a bit plane.
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // The bit planes of a chunk after those of the species: the cells
+    // holding anything, those holding a female, and the marked cells.
+    private static final int OCCUPIED = Species.COUNT;
+    private static final int FEMALE = Species.COUNT + 1;
+    private static final int MARKED = Species.COUNT + 2;
+    private static final int PLANES = Species.COUNT + 3;
+    // Where each plane starts within the memory of a chunk, and the size
+    // of the memory.
+    private static final int BITS_START = 0;
+    private static final int SPECIES_START = BITS_START + PLANES * CHUNK_SIZE * Long.BYTES;
+    private static final int ENTITY_START = SPECIES_START + CHUNK_SIZE * CHUNK_SIZE;
+    private static final int WATER_START = ENTITY_START + CHUNK_SIZE * CHUNK_SIZE * Integer.BYTES;
+    private static final int AGE_START = WATER_START + CHUNK_SIZE * CHUNK_SIZE * Integer.BYTES;
+    private static final int CHUNK_BYTES = AGE_START + CHUNK_SIZE * CHUNK_SIZE * Integer.BYTES;
+    // Reads and writes the entries of a chunk row with acquire and release
+    // ordering, so a chunk allocated by one thread is seen whole by others.
+    private static final VarHandle CHUNK_ENTRY = MethodHandles.arrayElementVarHandle(Chunk[].class);
+
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    // The number of long words covering one row of a bit plane, which is
+    // also the number of chunks across the field.
+    private int wordsPerRow;
+    // The chunk covering each block of the field, by chunk row and then
+    // chunk column, or null where nothing has been placed. The chunks of
+    // a chunk row are only given an array once one of them is needed, or
+    // once the field becomes concurrent, so the threads never race to
+    // create one.
+    private Chunk[][] chunks;
+    // The shared Location of each cell, by chunk row, chunk column and
+    // place in the region, created on first use. They are kept apart from
+    // the chunks, so a cell keeps its Location when its chunk is freed.
+    private Location[][][] locations;
+    // For each chunk row, one bit per chunk column for the chunks that
+    // are allocated.
+    private long[][] present;
+    // For each chunk row, the change stamp of the last change to each of
+    // its regions. It is kept when the chunk of a region is freed.
+    private long[][] changedAt;
+    // The stamp given to changes made now, and the stamp at which the
+    // whole field was last emptied.
+    private long stamp;
+    private long clearedAt;
+    // The free cells of each chunk row, as a Fenwick tree, and of each
+    // region of the allocated chunk rows, as a Fenwick tree per row.
+    private long[] rowFree;
+    private long[][] regionFree;
+    // The chunks whose occupancy has changed since the trees were last
+    // brought up to date, and how many there are.
+    private Chunk[] pending;
+    private int pendingCount;
+    // The chunks allocated, in no particular order.
+    private Chunk[] allocated;
+    private int allocatedCount;
+    // The memory of the chunks.
+    private MemoryArena arena;
+    // The number of cells holding each species, indexed by species id.
+    private long[] counts;
+    // Whether the counts are being changed from several threads.
+    private volatile boolean striped;
+    // The count stripe of each thread that has changed the field while
+    // striped, and the stripe of the current thread.
+    private List<int[]> stripes;
+    private ThreadLocal<int[]> stripe;
 
     /**
      * Represent a field of the given dimensions.
@@ -30,19 +156,43 @@ public class Field
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        wordsPerRow = (width + CHUNK_MASK) >>> CHUNK_BITS;
+        chunks = new Chunk[(depth + CHUNK_MASK) >>> CHUNK_BITS][];
+        locations = new Location[chunks.length][][];
+        present = new long[chunks.length][];
+        changedAt = new long[chunks.length][];
+        regionFree = new long[chunks.length][];
+        rowFree = new long[chunks.length];
+        buildRowFree();
+        pending = new Chunk[16];
+        allocated = new Chunk[16];
+        arena = new MemoryArena(CHUNK_BYTES);
+        counts = new long[Species.COUNT];
+        counts[Species.EMPTY] = (long) depth * width;
+        stripes = new ArrayList<>();
+        stripe = ThreadLocal.withInitial(this::newStripe);
     }
     
     /**
-     * Empty the field.
+     * Empty the field, freeing every chunk.
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
-            }
+        for(int n = 0; n < allocatedCount; n++) {
+            arena.release(allocated[n].memory);
         }
+        Arrays.fill(chunks, null);
+        Arrays.fill(present, null);
+        Arrays.fill(changedAt, null);
+        clearedAt = stamp;
+        Arrays.fill(regionFree, null);
+        buildRowFree();
+        Arrays.fill(pending, null);
+        pendingCount = 0;
+        Arrays.fill(allocated, null);
+        allocatedCount = 0;
+        Arrays.fill(counts, 0);
+        counts[Species.EMPTY] = (long) depth * width;
     }
     
     /**
@@ -51,38 +201,334 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(location.getRow(), location.getCol());
     }
-    
+
     /**
-     * Place an animal at the given location.
-     * If there is already an animal at the location it will
-     * be lost.
-     * @param animal The animal to be placed.
+     * Clear the given location.
      * @param row Row coordinate of the location.
      * @param col Column coordinate of the location.
      */
-    public void place(Object animal, int row, int col)
+    public void clear(int row, int col)
     {
-        place(animal, new Location(row, col));
+        clear(cellOf(row, col));
+    }
+
+    /**
+     * Clear the given cell.
+     * @param cell The row-major index of the cell.
+     */
+    public void clear(long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = chunkAt(row, col);
+        if(chunk == null) {
+            return;
+        }
+        int offset = offsetOf(row, col);
+        byte from = chunk.getSpecies(offset);
+        recount(from, Species.EMPTY);
+        setBits(chunk, row, col, from, Species.EMPTY, false);
+        chunk.setSpecies(offset, Species.EMPTY);
+        // Which store slot an entity had can depend on the order threads
+        // took blocks of slots in, so an empty cell must not keep it, or
+        // checkpoints would depend on it too.
+        chunk.setEntity(offset, -1);
+        if(!striped && chunk.population == 0) {
+            free(chunk);
+        }
     }
     
     /**
-     * Place an animal at the given location.
+     * Place an entity of an EntityStore at the given location.
      * If there is already an animal at the location it will
      * be lost.
-     * @param animal The animal to be placed.
-     * @param location Where to place the animal.
+     * @param speciesId The species of the entity.
+     * @param entity The index of the entity in its store.
+     * @param gender The gender of the entity, F = Female, M = Male.
+     * @param row Row coordinate of the location.
+     * @param col Column coordinate of the location.
      */
-    public void place(Object animal, Location location)
+    public void placeEntity(byte speciesId, int entity, char gender, int row, int col)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        placeEntity(speciesId, entity, gender, cellOf(row, col));
+    }
+
+    /**
+     * Place an entity of an EntityStore in the given cell.
+     * If there is already an animal in the cell it will be lost.
+     * @param speciesId The species of the entity.
+     * @param entity The index of the entity in its store.
+     * @param gender The gender of the entity, F = Female, M = Male.
+     * @param cell The row-major index of the cell.
+     */
+    public void placeEntity(byte speciesId, int entity, char gender, long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = allocate(row, col);
+        int offset = offsetOf(row, col);
+        byte from = chunk.getSpecies(offset);
+        recount(from, speciesId);
+        setBits(chunk, row, col, from, speciesId, gender == 'F');
+        chunk.setSpecies(offset, speciesId);
+        chunk.setEntity(offset, entity);
     }
     
     /**
-     * Return the animal at the given location, if any.
+     * Place a plant in the given cell.
+     * If there is already an animal in the cell it will be lost.
+     * @param cell The row-major index of the cell.
+     * @param waterLevel The water level of the plant.
+     * @param age The age of the plant.
+     */
+    public void placePlant(long cell, int waterLevel, int age)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = allocate(row, col);
+        int offset = offsetOf(row, col);
+        byte from = chunk.getSpecies(offset);
+        recount(from, Species.PLANT);
+        setBits(chunk, row, col, from, Species.PLANT, false);
+        chunk.setSpecies(offset, Species.PLANT);
+        chunk.setEntity(offset, -1);
+        chunk.setWater(offset, waterLevel);
+        chunk.setAge(offset, age);
+    }
+
+    /**
+     * @param cell The row-major index of a cell holding a plant.
+     * @return The water level of the plant.
+     */
+    public int getWater(long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = chunkAt(row, col);
+        return chunk == null ? 0 : chunk.getWater(offsetOf(row, col));
+    }
+
+    /**
+     * @param cell The row-major index of a cell holding a plant.
+     * @param waterLevel The new water level of the plant.
+     */
+    public void setWater(long cell, int waterLevel)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        chunkAt(row, col).setWater(offsetOf(row, col), waterLevel);
+    }
+
+    /**
+     * @param cell The row-major index of a cell holding a plant.
+     * @return The age of the plant.
+     */
+    public int getAge(long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = chunkAt(row, col);
+        return chunk == null ? 0 : chunk.getAge(offsetOf(row, col));
+    }
+
+    /**
+     * @param cell The row-major index of a cell holding a plant.
+     * @param age The new age of the plant.
+     */
+    public void setAge(long cell, int age)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        chunkAt(row, col).setAge(offsetOf(row, col), age);
+    }
+
+    /**
+     * Add to the water level of every plant in the field. The plants of
+     * each chunk are found a row at a time from its plant bit plane.
+     * @param amount The water to add.
+     */
+    public void waterPlants(int amount)
+    {
+        for(int n = 0; n < allocatedCount; n++) {
+            Chunk chunk = allocated[n];
+            for(int row = 0; row < CHUNK_SIZE; row++) {
+                long bits = chunk.getWord(Species.PLANT, row);
+                while(bits != 0) {
+                    int offset = row << CHUNK_BITS | Long.numberOfTrailingZeros(bits);
+                    chunk.setWater(offset, chunk.getWater(offset) + amount);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark every cell holding a species, and unmark every other cell.
+     * @param speciesId The species.
+     */
+    void markSpecies(byte speciesId)
+    {
+        for(int n = 0; n < allocatedCount; n++) {
+            ByteBuffer memory = allocated[n].memory;
+            memory.put(planeStart(MARKED), memory, planeStart(speciesId), CHUNK_SIZE * Long.BYTES);
+        }
+    }
+
+    /**
+     * Return the marked cells among 64 cells of a row.
+     * @param row The row.
+     * @param word The word of the row: columns 64 * word onwards.
+     * @return The marked cells, one bit per column from the lowest up.
+     */
+    long getMarked(int row, int word)
+    {
+        Chunk chunk = chunkAt(row, word << CHUNK_BITS);
+        return chunk == null ? 0 : chunk.getWord(MARKED, row & CHUNK_MASK);
+    }
+
+    /**
+     * Unmark a cell.
+     * @param cell The row-major index of the cell.
+     */
+    void unmark(long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = chunkAt(row, col);
+        if(chunk != null) {
+            int word = row & CHUNK_MASK;
+            chunk.setWord(MARKED, word, chunk.getWord(MARKED, word) & ~(1L << col));
+        }
+    }
+
+    /**
+     * Return the number of cells of a row holding a species.
+     * @param speciesId The species.
+     * @param row The row.
+     * @return The number of cells.
+     */
+    int countInRow(byte speciesId, int row)
+    {
+        Chunk[] line = chunks[row >>> CHUNK_BITS];
+        int count = 0;
+        for(int word = nextChunk(row, 0); word < wordsPerRow; word = nextChunk(row, word + 1)) {
+            count += Long.bitCount(line[word].getWord(speciesId, row & CHUNK_MASK));
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of long words covering one row of a bit plane.
+     */
+    int getWordsPerRow()
+    {
+        return wordsPerRow;
+    }
+
+    /**
+     * Find the next allocated chunk along a row. Only allocated chunks
+     * hold anything, so a sweep along a row can skip from one to the
+     * next.
+     * @param row The row.
+     * @param word The first word of the row to look at.
+     * @return The word of the row covered by the next allocated chunk,
+     *         or getWordsPerRow() if there is none.
+     */
+    int nextChunk(int row, int word)
+    {
+        long[] line = present[row >>> CHUNK_BITS];
+        int index = word >>> 6;
+        if(line == null || index >= line.length) {
+            return wordsPerRow;
+        }
+        long bits = line[index] & (-1L << word);
+        while(bits == 0) {
+            if(++index == line.length) {
+                return wordsPerRow;
+            }
+            bits = line[index];
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Start a new period of change tracking. Changes made from now on
+     * are newer than the stamp returned.
+     * @return The stamp to pass to hasChangedSince().
+     */
+    public long markChanges()
+    {
+        return stamp++;
+    }
+
+    /**
+     * Say whether anything in the region holding a cell has changed since
+     * a call to markChanges().
+     * @param since The stamp returned by markChanges(), or -1 to ask
+     *              whether the region has ever changed.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return true if the region has changed since the stamp.
+     */
+    public boolean hasChangedSince(long since, int row, int col)
+    {
+        if(clearedAt > since) {
+            return true;
+        }
+        long[] line = changedAt[row >>> CHUNK_BITS];
+        return line != null && line[col >>> CHUNK_BITS] > since;
+    }
+
+    /**
+     * Choose an empty cell of the field at random, each with the same
+     * chance. May only be called while the field is not concurrent.
+     * @param random The random numbers to use.
+     * @return The row-major index of the cell, or -1 if the field is full.
+     */
+    public long randomFreeCell(Random random)
+    {
+        if(counts[Species.EMPTY] == 0) {
+            return -1;
+        }
+        catchUp();
+        long n = random.nextLong(counts[Species.EMPTY]);
+        int chunkRow = find(rowFree, n);
+        n -= prefix(rowFree, chunkRow);
+        int top = chunkRow << CHUNK_BITS;
+        long[] regions = regionFree[chunkRow];
+        if(regions == null) {
+            // Nothing has been placed in the chunk row.
+            return cellOf(top + (int) (n / width), (int) (n % width));
+        }
+        int chunkCol = find(regions, n);
+        n -= prefix(regions, chunkCol);
+        int left = chunkCol << CHUNK_BITS;
+        int across = Math.min(CHUNK_SIZE, width - left);
+        Chunk chunk = chunks[chunkRow][chunkCol];
+        if(chunk == null) {
+            return cellOf(top + (int) (n / across), left + (int) (n % across));
+        }
+        long inField = across == CHUNK_SIZE ? -1L : (1L << across) - 1;
+        for(int row = 0; ; row++) {
+            long free = ~chunk.getWord(OCCUPIED, row) & inField;
+            int count = Long.bitCount(free);
+            if(n < count) {
+                for(; n > 0; n--) {
+                    free &= free - 1;
+                }
+                return cellOf(top + row, left + Long.numberOfTrailingZeros(free));
+            }
+            n -= count;
+        }
+    }
+
+    /**
+     * Return the species of the animal at the given location, if any.
      * @param location Where in the field.
-     * @return The animal at the given location, or null if there is none.
+     * @return The shared Species of the animal at the given location, or
+     *         null if there is none.
      */
     public Object getObjectAt(Location location)
     {
@@ -90,100 +536,769 @@ public class Field
     }
     
     /**
-     * Return the animal at the given location, if any.
+     * Return the species of the animal at the given location, if any.
      * @param row The desired row.
      * @param col The desired column.
-     * @return The animal at the given location, or null if there is none.
+     * @return The shared Species of the animal at the given location, or
+     *         null if there is none.
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        return Species.get(getSpeciesAt(row, col));
     }
-    
+
+    /**
+     * Return the species of the animal at the given location.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species id of the animal, or Species.EMPTY if there is none.
+     */
+    public byte getSpeciesAt(int row, int col)
+    {
+        Chunk chunk = chunkAt(row, col);
+        return chunk == null ? Species.EMPTY : chunk.getSpecies(offsetOf(row, col));
+    }
+
     /**
-     * Generate a random location that is adjacent to the
-     * given location, or is the same location.
-     * The returned location will be within the valid bounds
-     * of the field.
-     * @param location The location from which to generate an adjacency.
-     * @return A valid location within the grid area.
+     * Return the species of the animal in the given cell.
+     * @param cell The row-major index of the cell.
+     * @return The species id of the animal, or Species.EMPTY if there is none.
      */
-    public Location randomAdjacentLocation(Location location)
+    public byte getSpeciesAt(long cell)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        return getSpeciesAt(rowOf(cell), colOf(cell));
     }
-    
+
+    /**
+     * Return the entity at the given location of a field that holds
+     * entities of an EntityStore.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The index of the entity, or -1 if there is none.
+     */
+    public int getEntityAt(int row, int col)
+    {
+        return getEntityAt(cellOf(row, col));
+    }
+
+    /**
+     * Return the entity in the given cell of a field that holds
+     * entities of an EntityStore.
+     * @param cell The row-major index of the cell.
+     * @return The index of the entity, or -1 if there is none.
+     */
+    public int getEntityAt(long cell)
+    {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        Chunk chunk = chunkAt(row, col);
+        int offset = offsetOf(row, col);
+        if(chunk == null || chunk.getSpecies(offset) == Species.EMPTY) {
+            return -1;
+        }
+        return chunk.getEntity(offset);
+    }
+
+    /**
+     * Return the shared Location of the given cell. A cell is given the
+     * same Location for the life of the field, whether or not its chunk
+     * is allocated, so locations of the field can be compared with ==.
+     * The locations of a region are only made once one of them is asked
+     * for.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The location of the cell.
+     * @throws ArrayIndexOutOfBoundsException if the cell is outside the
+     *         field.
+     */
+    public Location getLocation(int row, int col)
+    {
+        if(row < 0 || row >= depth || col < 0 || col >= width) {
+            throw new ArrayIndexOutOfBoundsException("No cell at " + row + "," + col);
+        }
+        int chunkRow = row >>> CHUNK_BITS;
+        int chunkCol = col >>> CHUNK_BITS;
+        Location[][] line = locations[chunkRow];
+        if(line == null) {
+            line = new Location[wordsPerRow][];
+            locations[chunkRow] = line;
+        }
+        Location[] region = line[chunkCol];
+        if(region == null) {
+            region = new Location[CHUNK_SIZE * CHUNK_SIZE];
+            line[chunkCol] = region;
+        }
+        int offset = offsetOf(row, col);
+        Location location = region[offset];
+        if(location == null) {
+            location = new Location(row, col);
+            region[offset] = location;
+        }
+        return location;
+    }
+
+    /**
+     * Return the shared Location of the given cell.
+     * @param cell The row-major index of the cell.
+     * @return The location of the cell.
+     */
+    public Location getLocation(long cell)
+    {
+        return getLocation(rowOf(cell), colOf(cell));
+    }
+
+    /**
+     * Pack a row and column into a cell index.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The row-major index of the cell.
+     */
+    public long cellOf(int row, int col)
+    {
+        return (long) row * width + col;
+    }
+
+    /**
+     * @param cell The row-major index of a cell.
+     * @return The row of the cell.
+     */
+    public int rowOf(long cell)
+    {
+        return (int) (cell / width);
+    }
+
+    /**
+     * @param cell The row-major index of a cell.
+     * @return The column of the cell.
+     */
+    public int colOf(long cell)
+    {
+        return (int) (cell % width);
+    }
+
+    /**
+     * Sort the cells adjacent to an animal into prey, mates and free cells
+     * in a single pass, taking the cells in a random order.
+     * @param neighbourhood The snapshot to fill in.
+     * @param cell The row-major index of the animal's cell.
+     * @param speciesId The species of the animal.
+     * @param gender The gender of the animal, F = Female, M = Male.
+     * @param preyMask The species the animal eats, one bit per species id.
+     * @param random The random number generator choosing the order.
+     */
+    public void scanNeighbourhood(Neighbourhood neighbourhood, long cell,
+                                  byte speciesId, char gender, int preyMask, Random random)
+    {
+        scanNeighbourhood(neighbourhood, rowOf(cell), colOf(cell), speciesId, gender, preyMask,
+                          randomPermutation(random));
+    }
+
     /**
-     * Get a shuffled list of the free adjacent locations.
-     * @param location Get locations adjacent to this.
-     * @return A list of free adjacent locations.
+     * Sort the cells adjacent to an animal into prey, mates and free cells
+     * in a single pass, taking the cells in the order of a permutation.
+     * @param permutation The start of the permutation within PERMUTATIONS.
      */
-    public List<Location> getFreeAdjacentLocations(Location location)
+    private void scanNeighbourhood(Neighbourhood neighbourhood, int row, int col,
+                                   byte speciesId, char gender, int preyMask, int permutation)
     {
-        List<Location> free = new LinkedList<>();
-        List<Location> adjacent = adjacentLocations(location);
-        for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
-                free.add(next);
+        neighbourhood.start(this);
+        int free = ~adjacentBits(OCCUPIED, row, col) & inFieldMask(row, col);
+        int mates = adjacentMates(row, col, speciesId, gender);
+        int prey = adjacentMask(row, col, preyMask & ~(1 << speciesId));
+        if((free | mates | prey) == 0) {
+            return;
+        }
+        for(int n = 0; n < ADJACENT_COUNT; n++) {
+            int offset = PERMUTATIONS[permutation + n];
+            int bit = 1 << offset;
+            if(((free | mates | prey) & bit) != 0) {
+                int nextRow = row + ROW_OFFSETS[offset];
+                int nextCol = col + COL_OFFSETS[offset];
+                if((free & bit) != 0) {
+                    neighbourhood.addFree(nextRow, nextCol);
+                }
+                else if((mates & bit) != 0) {
+                    neighbourhood.addMate(nextRow, nextCol);
+                }
+                else {
+                    neighbourhood.addPrey(nextRow, nextCol);
+                }
             }
         }
-        return free;
     }
-    
+
     /**
-     * Try to find a free location that is adjacent to the
-     * given location. If there is none, return null.
-     * The returned location will be within the valid bounds
-     * of the field.
-     * @param location The location from which to generate an adjacency.
-     * @return A valid location within the grid area.
+     * Find the cells adjacent to a cell that hold any of the given species.
+     * Bit n of the result stands for the cell at ROW_OFFSETS[n],
+     * COL_OFFSETS[n] from the given cell.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param speciesMask The species to look for, one bit per species id.
+     * @return The adjacent cells holding one of the species.
      */
-    public Location freeAdjacentLocation(Location location)
+    public int adjacentMask(int row, int col, int speciesMask)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int found = 0;
+        for(int id = 1; id < Species.COUNT; id++) {
+            if((speciesMask & (1 << id)) != 0) {
+                found |= adjacentBits(id, row, col);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the cells adjacent to a cell that hold a mate for an animal:
+     * one of the same species and the opposite gender.
+     * @param row The row of the animal.
+     * @param col The column of the animal.
+     * @param speciesId The species of the animal.
+     * @param gender The gender of the animal, F = Female, M = Male.
+     * @return The adjacent cells holding a mate, as for adjacentMask.
+     */
+    public int adjacentMates(int row, int col, byte speciesId, char gender)
+    {
+        int same = adjacentBits(speciesId, row, col);
+        int female = adjacentBits(FEMALE, row, col);
+        return gender == 'F' ? same & ~female : same & female;
+    }
+
+    /**
+     * Gather the bits of a plane for the eight cells adjacent to a cell,
+     * in the order of the offset tables. Cells outside the field give 0.
+     * @param plane The bit plane: a species id, OCCUPIED or FEMALE.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The bits of the adjacent cells.
+     */
+    private int adjacentBits(int plane, int row, int col)
+    {
+        int above = row > 0 ? rowBits(plane, row - 1, col) : 0;
+        int middle = rowBits(plane, row, col);
+        int below = row < depth - 1 ? rowBits(plane, row + 1, col) : 0;
+        return above | (middle & 1) << 3 | (middle & 4) << 2 | below << 5;
+    }
+
+    /**
+     * Read the bits of a plane for the columns either side of a column
+     * and the column itself.
+     * @param plane The bit plane: a species id, OCCUPIED or FEMALE.
+     * @param row The row to read.
+     * @param col The middle column.
+     * @return Three bits, for col - 1, col and col + 1 from the lowest up.
+     */
+    private int rowBits(int plane, int row, int col)
+    {
+        int first = col - 1;
+        if(first >= 0 && (first & CHUNK_MASK) <= CHUNK_SIZE - 3) {
+            Chunk chunk = chunkAt(row, first);
+            if(chunk == null) {
+                return 0;
+            }
+            return (int) (chunk.getWord(plane, row & CHUNK_MASK) >>> (first & CHUNK_MASK)) & 7;
+        }
+        // The three columns run off the field or across two chunks.
+        int bits = 0;
+        for(int n = 0; n < 3; n++) {
+            int next = first + n;
+            if(next >= 0 && next < width) {
+                Chunk chunk = chunkAt(row, next);
+                if(chunk != null && (chunk.getWord(plane, row & CHUNK_MASK) & (1L << next)) != 0) {
+                    bits |= 1 << n;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @param row The row of a cell.
+     * @param col The column of a cell.
+     * @return The adjacent cells that lie within the field, as for
+     *         adjacentMask.
+     */
+    private int inFieldMask(int row, int col)
+    {
+        int mask = 0xFF;
+        if(row == 0) {
+            mask &= ~0x07;
+        }
+        if(row == depth - 1) {
+            mask &= ~0xE0;
+        }
+        if(col == 0) {
+            mask &= ~0x29;
+        }
+        if(col == width - 1) {
+            mask &= ~0x94;
+        }
+        return mask;
+    }
+
+    /**
+     * Bring the bit planes and the activity of a chunk up to date for a
+     * change to a cell. While the field is changed from several threads
+     * the chunk is only marked to be counted again afterwards.
+     * @param chunk The chunk holding the cell.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param from The species that was in the cell.
+     * @param to The species now in the cell.
+     * @param female Whether the new occupant is female.
+     */
+    private void setBits(Chunk chunk, int row, int col, byte from, byte to, boolean female)
+    {
+        changedAt[row >>> CHUNK_BITS][col >>> CHUNK_BITS] = stamp;
+        if((from == Species.EMPTY) != (to == Species.EMPTY)) {
+            if(striped) {
+                chunk.recount = true;
+            }
+            else {
+                chunk.population += to == Species.EMPTY ? -1 : 1;
+                queue(chunk);
+            }
+        }
+        int word = row & CHUNK_MASK;
+        long bit = 1L << col;
+        if(from != Species.EMPTY) {
+            chunk.setWord(from, word, chunk.getWord(from, word) & ~bit);
+        }
+        if(to != Species.EMPTY) {
+            chunk.setWord(to, word, chunk.getWord(to, word) | bit);
+            chunk.setWord(OCCUPIED, word, chunk.getWord(OCCUPIED, word) | bit);
+        }
+        else {
+            chunk.setWord(OCCUPIED, word, chunk.getWord(OCCUPIED, word) & ~bit);
+        }
+        if(female && to != Species.EMPTY) {
+            chunk.setWord(FEMALE, word, chunk.getWord(FEMALE, word) | bit);
         }
         else {
-            return null;
-        }
-    }
-
-    /**
-     * Return a shuffled list of locations adjacent to the given one.
-     * The list will not include the location itself.
-     * All locations will lie within the grid.
-     * @param location The location from which to generate adjacencies.
-     * @return A list of locations adjacent to that given.
-     */
-    public List<Location> adjacentLocations(Location location)
-    {
-        assert location != null : "Null location passed to adjacentLocations";
-        // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
-        if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
+            chunk.setWord(FEMALE, word, chunk.getWord(FEMALE, word) & ~bit);
+        }
+    }
+
+    /**
+     * @param row The row of a cell.
+     * @param col The column of a cell.
+     * @return The chunk holding the cell, or null if it has not been
+     *         allocated.
+     */
+    private Chunk chunkAt(int row, int col)
+    {
+        Chunk[] line = chunks[row >>> CHUNK_BITS];
+        return line == null ? null : (Chunk) CHUNK_ENTRY.getAcquire(line, col >>> CHUNK_BITS);
+    }
+
+    /**
+     * Return the chunk holding a cell, allocating it if need be.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The chunk.
+     */
+    private Chunk allocate(int row, int col)
+    {
+        Chunk chunk = chunkAt(row, col);
+        if(chunk == null) {
+            chunk = newChunk(row >>> CHUNK_BITS, col >>> CHUNK_BITS);
+        }
+        return chunk;
+    }
+
+    /**
+     * Allocate a chunk, unless another thread has just done so.
+     * @param chunkRow The chunk row of the chunk.
+     * @param chunkCol The chunk column of the chunk.
+     * @return The chunk.
+     */
+    private synchronized Chunk newChunk(int chunkRow, int chunkCol)
+    {
+        if(chunks[chunkRow] == null) {
+            newRow(chunkRow);
+        }
+        Chunk[] line = chunks[chunkRow];
+        Chunk chunk = line[chunkCol];
+        if(chunk == null) {
+            chunk = new Chunk(chunkRow, chunkCol, arena.allocate());
+            if(allocatedCount == allocated.length) {
+                allocated = Arrays.copyOf(allocated, allocatedCount * 2);
+            }
+            chunk.slot = allocatedCount;
+            allocated[allocatedCount++] = chunk;
+            CHUNK_ENTRY.setRelease(line, chunkCol, chunk);
+            present[chunkRow][chunkCol >>> 6] |= 1L << chunkCol;
+        }
+        return chunk;
+    }
+
+    /**
+     * Give a chunk row the arrays that track its chunks. May only be
+     * called while the field is not concurrent, or by newChunk().
+     * @param chunkRow The chunk row.
+     */
+    private void newRow(int chunkRow)
+    {
+        present[chunkRow] = new long[(wordsPerRow + 63) >>> 6];
+        changedAt[chunkRow] = new long[wordsPerRow];
+        regionFree[chunkRow] = buildRegionFree(chunkRow);
+        chunks[chunkRow] = new Chunk[wordsPerRow];
+    }
+
+    /**
+     * Free a chunk that holds nothing.
+     * @param chunk The chunk.
+     */
+    private void free(Chunk chunk)
+    {
+        chunks[chunk.chunkRow][chunk.chunkCol] = null;
+        present[chunk.chunkRow][chunk.chunkCol >>> 6] &= ~(1L << chunk.chunkCol);
+        arena.release(chunk.memory);
+        Chunk last = allocated[--allocatedCount];
+        allocated[chunk.slot] = last;
+        last.slot = chunk.slot;
+        allocated[allocatedCount] = null;
+    }
+
+    /**
+     * @param row The row of a cell.
+     * @param col The column of a cell.
+     * @return The place of the cell within its chunk.
+     */
+    private static int offsetOf(int row, int col)
+    {
+        return (row & CHUNK_MASK) << CHUNK_BITS | (col & CHUNK_MASK);
+    }
+
+    /**
+     * @param plane A bit plane.
+     * @return Where the plane starts within the memory of a chunk.
+     */
+    private static int planeStart(int plane)
+    {
+        return BITS_START + plane * CHUNK_SIZE * Long.BYTES;
+    }
+
+    /**
+     * Note that the occupancy of a chunk has changed, so that the free
+     * cell trees are brought up to date before they are next used.
+     * @param chunk The chunk.
+     */
+    private void queue(Chunk chunk)
+    {
+        if(!chunk.queued) {
+            chunk.queued = true;
+            if(pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = chunk;
+        }
+    }
+
+    /**
+     * Bring the free cell trees up to date with the chunks whose occupancy
+     * has changed, including those freed since.
+     */
+    private void catchUp()
+    {
+        for(int n = 0; n < pendingCount; n++) {
+            Chunk chunk = pending[n];
+            int change = chunk.population - chunk.treePopulation;
+            if(change != 0) {
+                add(rowFree, chunk.chunkRow, -change);
+                add(regionFree[chunk.chunkRow], chunk.chunkCol, -change);
+                chunk.treePopulation = chunk.population;
+            }
+            chunk.queued = false;
+            pending[n] = null;
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Fill the tree of the free cells of each chunk row for an empty field.
+     */
+    private void buildRowFree()
+    {
+        for(int chunkRow = 0; chunkRow < rowFree.length; chunkRow++) {
+            int rows = Math.min(CHUNK_SIZE, depth - (chunkRow << CHUNK_BITS));
+            rowFree[chunkRow] = (long) rows * width;
+        }
+        build(rowFree);
+    }
+
+    /**
+     * Make the tree of the free cells of each region of a chunk row in
+     * which nothing has yet been placed.
+     * @param chunkRow The chunk row.
+     * @return The tree.
+     */
+    private long[] buildRegionFree(int chunkRow)
+    {
+        long[] tree = new long[wordsPerRow];
+        int rows = Math.min(CHUNK_SIZE, depth - (chunkRow << CHUNK_BITS));
+        for(int chunkCol = 0; chunkCol < wordsPerRow; chunkCol++) {
+            tree[chunkCol] = (long) rows * Math.min(CHUNK_SIZE, width - (chunkCol << CHUNK_BITS));
+        }
+        build(tree);
+        return tree;
+    }
+
+    /**
+     * Turn an array of values into a Fenwick tree of them, in place.
+     * @param tree The values.
+     */
+    private static void build(long[] tree)
+    {
+        for(int node = 1; node <= tree.length; node++) {
+            int parent = node + (node & -node);
+            if(parent <= tree.length) {
+                tree[parent - 1] += tree[node - 1];
+            }
+        }
+    }
+
+    /**
+     * Add to one value of a Fenwick tree.
+     * @param tree The tree.
+     * @param index The value.
+     * @param amount The amount to add.
+     */
+    private static void add(long[] tree, int index, long amount)
+    {
+        for(int node = index + 1; node <= tree.length; node += node & -node) {
+            tree[node - 1] += amount;
+        }
+    }
+
+    /**
+     * @param tree A Fenwick tree.
+     * @param index A value of the tree.
+     * @return The total of the values before it.
+     */
+    private static long prefix(long[] tree, int index)
+    {
+        long total = 0;
+        for(int node = index; node > 0; node -= node & -node) {
+            total += tree[node - 1];
+        }
+        return total;
+    }
+
+    /**
+     * Find the value of a Fenwick tree within which a running total
+     * passes a given amount.
+     * @param tree The tree.
+     * @param amount The amount, less than the total of the tree.
+     * @return The first value whose running total is above the amount.
+     */
+    private static int find(long[] tree, long amount)
+    {
+        int index = 0;
+        for(int step = Integer.highestOneBit(tree.length); step > 0; step >>>= 1) {
+            int next = index + step;
+            if(next <= tree.length && tree[next - 1] <= amount) {
+                index = next;
+                amount -= tree[next - 1];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Count the animals of each species in the field. The counts are kept
+     * up to date as the field changes, so this does not scan the grid.
+     * @param speciesCounts An array indexed by species id to receive the
+     *                      counts; the EMPTY entry receives the number of
+     *                      empty cells.
+     */
+    public void countSpecies(int[] speciesCounts)
+    {
+        for(int id = 0; id < Species.COUNT; id++) {
+            speciesCounts[id] = getCount((byte) id);
+        }
+    }
+
+    /**
+     * Return the number of animals of a species in the field.
+     * @param speciesId The species.
+     * @return The number of cells holding the species, or
+     *         Integer.MAX_VALUE if there are more.
+     */
+    public int getCount(byte speciesId)
+    {
+        return (int) Math.min(counts[speciesId], Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add the field to a checkpoint: the memory of every allocated chunk,
+     * as it is, chunk row by chunk row, so that the same field always
+     * gives the same checkpoint whichever threads allocated its chunks.
+     * The field must not be concurrent.
+     * @param image The checkpoint being built.
+     */
+    void writeTo(Checkpoint image)
+    {
+        image.putInt(allocatedCount);
+        for(int chunkRow = 0; chunkRow < chunks.length; chunkRow++) {
+            int row = chunkRow << CHUNK_BITS;
+            for(int chunkCol = nextChunk(row, 0); chunkCol < wordsPerRow; chunkCol = nextChunk(row, chunkCol + 1)) {
+                image.putInt(chunkRow);
+                image.putInt(chunkCol);
+                image.put(chunks[chunkRow][chunkCol].memory, 0, CHUNK_BYTES);
+            }
+        }
+    }
+
+    /**
+     * Replace the contents of the field with those read from a checkpoint
+     * written by writeTo(). The occupied cells and the species counts are
+     * worked out again from the bit planes of the chunks, and every region
+     * counts as changed.
+     * @param image The checkpoint being read.
+     * @throws IOException If the checkpoint cannot be read or does not
+     *                     fit the field.
+     */
+    void readFrom(Checkpoint image) throws IOException
+    {
+        clear();
+        int chunkCount = image.getCount((long) chunks.length * wordsPerRow);
+        for(int n = 0; n < chunkCount; n++) {
+            int chunkRow = image.getCount(chunks.length - 1);
+            int chunkCol = image.getCount(wordsPerRow - 1);
+            Chunk chunk = newChunk(chunkRow, chunkCol);
+            image.get(chunk.memory, 0, CHUNK_BYTES);
+            chunk.population = chunk.count(OCCUPIED);
+            queue(chunk);
+            changedAt[chunkRow][chunkCol] = stamp;
+            for(int id = 1; id < Species.COUNT; id++) {
+                int count = chunk.count(id);
+                counts[id] += count;
+                counts[Species.EMPTY] -= count;
+            }
+        }
+    }
+
+    /**
+     * Say whether the field is about to be changed from several threads
+     * at once. While it is, each thread counts the species it places and
+     * clears into a stripe of its own. When it stops, the stripes are
+     * added into the counts, which must not be read in the meantime, the
+     * occupied cells of the chunks changed are counted again, and the
+     * chunks left empty are freed. Before it starts, every chunk row is
+     * given its arrays, so that the threads only ever add chunks to rows
+     * that all of them already see.
+     * @param concurrent true before the threads start, false once they
+     *                   have all finished.
+     */
+    public void setConcurrent(boolean concurrent)
+    {
+        if(concurrent) {
+            for(int chunkRow = 0; chunkRow < chunks.length; chunkRow++) {
+                if(chunks[chunkRow] == null) {
+                    newRow(chunkRow);
+                }
+            }
+        }
+        striped = concurrent;
+        if(!concurrent) {
+            synchronized(stripes) {
+                for(int[] tally : stripes) {
+                    for(int id = 0; id < Species.COUNT; id++) {
+                        counts[id] += tally[id];
+                        tally[id] = 0;
                     }
                 }
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
+            for(int n = allocatedCount - 1; n >= 0; n--) {
+                Chunk chunk = allocated[n];
+                if(chunk.recount) {
+                    chunk.recount = false;
+                    chunk.population = chunk.count(OCCUPIED);
+                    queue(chunk);
+                }
+                if(chunk.population == 0) {
+                    free(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move one cell from one species' count to another's.
+     * @param from The species that was in the cell.
+     * @param to The species now in the cell.
+     */
+    private void recount(byte from, byte to)
+    {
+        if(striped) {
+            int[] tally = stripe.get();
+            tally[from]--;
+            tally[to]++;
+        }
+        else {
+            counts[from]--;
+            counts[to]++;
         }
-        return locations;
+    }
+
+    /**
+     * Create the count stripe of a thread.
+     * @return The stripe.
+     */
+    private int[] newStripe()
+    {
+        int[] tally = new int[Species.COUNT];
+        synchronized(stripes) {
+            stripes.add(tally);
+        }
+        return tally;
+    }
+    
+    /**
+     * Pick one of the orderings of the adjacent offsets at random.
+     * @param random The random number generator to use.
+     * @return The start of the permutation within PERMUTATIONS.
+     */
+    static int randomPermutation(Random random)
+    {
+        return random.nextInt(PERMUTATION_COUNT) * ADJACENT_COUNT;
+    }
+
+    /**
+     * Build every ordering of the adjacent offsets, one after another.
+     * @return The orderings, ADJACENT_COUNT entries each.
+     */
+    private static byte[] buildPermutations()
+    {
+        byte[] table = new byte[PERMUTATION_COUNT * ADJACENT_COUNT];
+        byte[] order = new byte[ADJACENT_COUNT];
+        for(int n = 0; n < ADJACENT_COUNT; n++) {
+            order[n] = (byte) n;
+        }
+        for(int p = 0; p < PERMUTATION_COUNT; p++) {
+            System.arraycopy(order, 0, table, p * ADJACENT_COUNT, ADJACENT_COUNT);
+            // Step to the next ordering in lexicographic order.
+            int i = ADJACENT_COUNT - 2;
+            while(i >= 0 && order[i] > order[i + 1]) {
+                i--;
+            }
+            if(i < 0) {
+                break;
+            }
+            int j = ADJACENT_COUNT - 1;
+            while(order[j] < order[i]) {
+                j--;
+            }
+            byte swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+            for(int lo = i + 1, hi = ADJACENT_COUNT - 1; lo < hi; lo++, hi--) {
+                swap = order[lo];
+                order[lo] = order[hi];
+                order[hi] = swap;
+            }
+        }
+        return table;
     }
 
     /**
@@ -204,4 +1319,140 @@ public class Field
     {
         return width;
     }
+
+    /**
+     * A block of CHUNK_SIZE by CHUNK_SIZE cells of the field, holding the
+     * planes of its cells in row-major order. The planes are kept in the
+     * memory of the chunk, laid out from BITS_START, SPECIES_START,
+     * ENTITY_START, WATER_START and AGE_START.
+     */
+    private static class Chunk
+    {
+        // The place of the chunk in the directory of the field.
+        final int chunkRow, chunkCol;
+        // The memory holding the planes of the chunk.
+        final ByteBuffer memory;
+        // The place of the chunk in the list of allocated chunks.
+        int slot;
+        // The number of occupied cells, and whether it must be counted
+        // again because the chunk was changed from several threads.
+        int population;
+        boolean recount;
+        // The number of occupied cells the free cell trees allow for, and
+        // whether the chunk is waiting for the trees to catch up with it.
+        int treePopulation;
+        boolean queued;
+
+        Chunk(int chunkRow, int chunkCol, ByteBuffer memory)
+        {
+            this.chunkRow = chunkRow;
+            this.chunkCol = chunkCol;
+            this.memory = memory.order(ByteOrder.nativeOrder());
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @return The species id of its occupant.
+         */
+        byte getSpecies(int offset)
+        {
+            return memory.get(SPECIES_START + offset);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @param speciesId The species id of its new occupant.
+         */
+        void setSpecies(int offset, byte speciesId)
+        {
+            memory.put(SPECIES_START + offset, speciesId);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @return The entity index of its occupant.
+         */
+        int getEntity(int offset)
+        {
+            return memory.getInt(ENTITY_START + offset * Integer.BYTES);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @param entity The entity index of its new occupant.
+         */
+        void setEntity(int offset, int entity)
+        {
+            memory.putInt(ENTITY_START + offset * Integer.BYTES, entity);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @return The water level of its plant.
+         */
+        int getWater(int offset)
+        {
+            return memory.getInt(WATER_START + offset * Integer.BYTES);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @param level The new water level of its plant.
+         */
+        void setWater(int offset, int level)
+        {
+            memory.putInt(WATER_START + offset * Integer.BYTES, level);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @return The age of its plant.
+         */
+        int getAge(int offset)
+        {
+            return memory.getInt(AGE_START + offset * Integer.BYTES);
+        }
+
+        /**
+         * @param offset A cell of the chunk.
+         * @param age The new age of its plant.
+         */
+        void setAge(int offset, int age)
+        {
+            memory.putInt(AGE_START + offset * Integer.BYTES, age);
+        }
+
+        /**
+         * @param plane A bit plane.
+         * @param row A row of the chunk.
+         * @return The word of the plane for the row.
+         */
+        long getWord(int plane, int row)
+        {
+            return memory.getLong(planeStart(plane) + row * Long.BYTES);
+        }
+
+        /**
+         * @param plane A bit plane.
+         * @param row A row of the chunk.
+         * @param word The new word of the plane for the row.
+         */
+        void setWord(int plane, int row, long word)
+        {
+            memory.putLong(planeStart(plane) + row * Long.BYTES, word);
+        }
+
+        /**
+         * @param plane A bit plane.
+         * @return The number of cells set in the plane.
+         */
+        int count(int plane)
+        {
+            int count = 0;
+            for(int row = 0; row < CHUNK_SIZE; row++) {
+                count += Long.bitCount(getWord(plane, row));
+            }
+            return count;
+        }
+    }
 }
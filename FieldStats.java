@@ -13,6 +13,8 @@ public class FieldStats
     private HashMap<Class, Counter> counters;
     // Whether the counters are currently up to date.
     private boolean countsValid;
+    // Scratch space for counting each species, indexed by species id.
+    private int[] speciesCounts;
 
     /**
      * Construct a FieldStats object.
@@ -23,6 +25,7 @@ public class FieldStats
         // we might find
         counters = new HashMap<>();
         countsValid = true;
+        speciesCounts = new int[Species.COUNT];
 
     }
 
@@ -82,6 +85,16 @@ public class FieldStats
      * @param animalClass The class of animal to increment.
      */
     public void incrementCount(Class animalClass)
+    {
+        incrementCount(animalClass, 1);
+    }
+
+    /**
+     * Increment the count for one class of animal by the given amount.
+     * @param animalClass The class of animal to increment.
+     * @param amount The number of animals to add.
+     */
+    private void incrementCount(Class<?> animalClass, int amount)
     {
         Counter count = counters.get(animalClass);
         if(count == null) {
@@ -90,7 +103,21 @@ public class FieldStats
             count = new Counter(animalClass.getName());
             counters.put(animalClass, count);
         }
-        count.increment();
+        count.increment(amount);
+    }
+
+    /**
+     * Add counts that were gathered per species id, e.g. while drawing
+     * the field, to the counters.
+     * @param counts The number of animals of each species, indexed by id.
+     */
+    public void addCounts(int[] counts)
+    {
+        for(int id = 1; id < Species.COUNT; id++) {
+            if(counts[id] > 0) {
+                incrementCount(Species.get(id).getAnimalClass(), counts[id]);
+            }
+        }
     }
 
     /**
@@ -123,23 +150,17 @@ public class FieldStats
     }
     
     /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * Generate counts of the number of each species.
+     * The field keeps its own counts up to date as animals
+     * are placed and cleared, so these are copied from it
+     * rather than counted from the grid.
      * @param field The field to generate the stats for.
      */
     private void generateCounts(Field field)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
-            }
-        }
+        field.countSpecies(speciesCounts);
+        addCounts(speciesCounts);
         countsValid = true;
     }
 }
@@ -0,0 +1,79 @@
+/**
+ * Who eats whom in the simulation. The food web is a dense table indexed
+ * by predator and prey species id, giving for each predator the species
+ * it eats as a bit mask, and the food level it gains from each of them.
+ * The SpeciesKernel takes its predation rules from here, so a prey test
+ * is a single mask check. The links are read from the species
+ * parameters, held by SpeciesConfig.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public final class FoodWeb
+{
+    // The species each species eats, one bit per species id.
+    private static final int[] preyMasks = new int[Species.COUNT];
+    // The food level a predator gains from a prey, indexed by
+    // predator id * Species.COUNT + prey id.
+    private static final int[] foodValues = new int[Species.COUNT * Species.COUNT];
+
+    static {
+        for(int predator = 1; predator < Species.COUNT; predator++) {
+            for(int prey = 1; prey < Species.COUNT; prey++) {
+                int value = SpeciesConfig.preyFoodValue[predator * Species.COUNT + prey];
+                if(value > 0) {
+                    eats((byte) predator, (byte) prey, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * The food web is only used through its static methods.
+     */
+    private FoodWeb()
+    {
+    }
+
+    /**
+     * @param predator A species.
+     * @return The species it eats, one bit per species id.
+     */
+    public static int preyOf(byte predator)
+    {
+        return preyMasks[predator];
+    }
+
+    /**
+     * @param predator A species.
+     * @param prey Another species.
+     * @return true if the predator eats the prey.
+     */
+    public static boolean eats(byte predator, byte prey)
+    {
+        return (preyMasks[predator] & (1 << prey)) != 0;
+    }
+
+    /**
+     * Return the food level a predator gains from eating a prey.
+     * @param predator The species of the predator.
+     * @param prey The species of the prey.
+     * @return The food value, or 0 if the predator does not eat the prey.
+     */
+    public static int foodValue(byte predator, byte prey)
+    {
+        return foodValues[predator * Species.COUNT + prey];
+    }
+
+    /**
+     * Add a link to the food web.
+     * @param predator The species that eats.
+     * @param prey The species that is eaten.
+     * @param value The food level the predator gains from the prey.
+     */
+    private static void eats(byte predator, byte prey, int value)
+    {
+        preyMasks[predator] |= 1 << prey;
+        foodValues[predator * Species.COUNT + prey] = value;
+    }
+}
@@ -1,6 +1,7 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,6 +21,10 @@ public class GridView extends JFrame implements SimulatorView
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
 
+    // The most rows and columns of the field shown. A larger field is
+    // shown from its top left corner.
+    private static final int MAX_VIEW_SIZE = 512;
+
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
     private JLabel stepLabel, population;
@@ -27,11 +32,17 @@ public class GridView extends JFrame implements SimulatorView
 
     // A map for storing colors for participants in the simulation
     private Map<Class<?>, Color> colors;
+    // The colors of the species, indexed by species id
+    private Color[] speciesColors;
     // A statistics object computing and storing simulation information
     private FieldStats stats;
+    // The field last drawn, and the change stamp it was drawn at
+    private Field drawnField;
+    private long drawnAt;
 
     /**
-     * Create a view of the given width and height.
+     * Create a view of the given width and height, or of as much of it
+     * as MAX_VIEW_SIZE allows.
      * @param height The simulation's height.
      * @param width  The simulation's width.
      */
@@ -39,6 +50,9 @@ public class GridView extends JFrame implements SimulatorView
     {
         stats = new FieldStats();
         colors = new HashMap<>();
+        speciesColors = new Color[Species.COUNT];
+        Arrays.fill(speciesColors, UNKNOWN_COLOR);
+        speciesColors[Species.EMPTY] = EMPTY_COLOR;
 
         setTitle("Fox and Rabbit Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
@@ -46,7 +60,7 @@ public class GridView extends JFrame implements SimulatorView
 
         setLocation(20, 50);
 
-        fieldView = new FieldView(height, width);
+        fieldView = new FieldView(Math.min(height, MAX_VIEW_SIZE), Math.min(width, MAX_VIEW_SIZE));
 
         Container contents = getContentPane();
         contents.add(stepLabel, BorderLayout.NORTH);
@@ -64,25 +78,15 @@ public class GridView extends JFrame implements SimulatorView
     public void setColor(Class<?> animalClass, Color color)
     {
         colors.put(animalClass, color);
-    }
-
-    /**
-     * @return The color to be used for a given class of animal.
-     */
-    private Color getColor(Class<?> animalClass)
-    {
-        Color col = colors.get(animalClass);
-        if(col == null) {
-            // no color defined for this class
-            return UNKNOWN_COLOR;
-        }
-        else {
-            return col;
+        byte id = Species.idOf(animalClass);
+        if(id != Species.EMPTY) {
+            speciesColors[id] = color;
         }
     }
 
     /**
-     * Show the current status of the field.
+     * Show the current status of the field. Only the regions of the
+     * field that changed since it was last shown are drawn again.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
@@ -95,22 +99,26 @@ public class GridView extends JFrame implements SimulatorView
         stepLabel.setText(STEP_PREFIX + step);
         stats.reset();
 
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    Class<?> cls = animal.getClass();
-                    stats.incrementCount(cls);
-                    fieldView.drawMark(col, row, getColor(cls));
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
+        boolean resized = fieldView.preparePaint();
+        long since = resized || field != drawnField ? -1 : drawnAt;
+        drawnField = field;
+        drawnAt = field.markChanges();
+
+        int rows = Math.min(field.getDepth(), MAX_VIEW_SIZE);
+        int cols = Math.min(field.getWidth(), MAX_VIEW_SIZE);
+        for(int top = 0; top < rows; top += Field.CHUNK_SIZE) {
+            for(int left = 0; left < cols; left += Field.CHUNK_SIZE) {
+                if(field.hasChangedSince(since, top, left)) {
+                    int bottom = Math.min(rows, top + Field.CHUNK_SIZE);
+                    int right = Math.min(cols, left + Field.CHUNK_SIZE);
+                    for(int row = top; row < bottom; row++) {
+                        for(int col = left; col < right; col++) {
+                            fieldView.drawMark(col, row, speciesColors[field.getSpeciesAt(row, col)]);
+                        }
+                    }
                 }
             }
         }
-        stats.countFinished();
 
         population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
         fieldView.repaint();
@@ -173,8 +181,10 @@ public class GridView extends JFrame implements SimulatorView
         /**
          * Prepare for a new round of painting. Since the component
          * may be resized, compute the scaling factor again.
+         * @return true if the image was made afresh and must be drawn
+         *         in full.
          */
-        public void preparePaint()
+        public boolean preparePaint()
         {
             if(! size.equals(getSize())) {  // if the size has changed...
                 size = getSize();
@@ -189,7 +199,9 @@ public class GridView extends JFrame implements SimulatorView
                 if(yScale < 1) {
                     yScale = GRID_VIEW_SCALING_FACTOR;
                 }
+                return true;
             }
+            return false;
         }
 
         /**
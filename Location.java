@@ -1,5 +1,7 @@
 /**
  * Represent a location in a rectangular grid.
+ * Locations are immutable, and a Field hands out one shared
+ * Location per cell through Field.getLocation.
  * 
  * @author Aamir Faaiz
  * @version 2019-FEB
@@ -7,8 +9,8 @@
 public class Location
 {
     // Row and column positions.
-    private int row;
-    private int col;
+    private final int row;
+    private final int col;
 
     /**
      * Represent a row and column.
@@ -45,14 +47,15 @@ public class Location
     }
     
     /**
-     * Use the top 16 bits for the row value and the bottom for
-     * the column. Except for very big grids, this should give a
-     * unique hash code for each (row, col) pair.
+     * Mix the row and column so that the hash codes stay well spread
+     * on very wide grids, where shifting the row into the top 16 bits
+     * would collide once the column reaches 65536.
      * @return A hashcode for the location.
      */
     public int hashCode()
     {
-        return (row << 16) + col;
+        int hash = row * 0x9E3779B1 + col;
+        return hash ^ (hash >>> 16);
     }
     
     /**
@@ -0,0 +1,94 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Hands out blocks of memory outside the Java heap, all of the same size.
+ * Blocks are cut from slabs of about a megabyte, allocated as direct
+ * buffers, so the heap only holds a small buffer object for each block
+ * however much memory the blocks cover, and the garbage collector never
+ * copies or scans their contents.
+ *
+ * A released block is kept for the next allocation rather than given
+ * back, so an arena only ever grows to the most blocks it has held at
+ * once. The slabs are freed when the arena itself is no longer used.
+ * Direct memory counts against -XX:MaxDirectMemorySize, which is the
+ * heap size unless it is set, so a large field run with a small heap
+ * should set it.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class MemoryArena
+{
+    // The size of a slab, in bytes, unless a block is larger.
+    private static final int SLAB_BYTES = 1 << 20;
+
+    // The size of a block, in bytes.
+    private final int blockBytes;
+    // The number of blocks cut from each slab.
+    private final int blocksPerSlab;
+    // The blocks cut from slabs and not in use, and how many there are.
+    private ByteBuffer[] spare;
+    private int spareCount;
+    // The number of slabs allocated.
+    private int slabCount;
+
+    /**
+     * Create an empty arena.
+     * @param blockBytes The size of its blocks, in bytes, a multiple of 8.
+     */
+    public MemoryArena(int blockBytes)
+    {
+        this.blockBytes = blockBytes;
+        blocksPerSlab = Math.max(1, SLAB_BYTES / blockBytes);
+        spare = new ByteBuffer[blocksPerSlab];
+        spareCount = 0;
+        slabCount = 0;
+    }
+
+    /**
+     * Take a block from the arena, cutting a new slab if there is no
+     * spare one.
+     * @return A block of memory, filled with zeros.
+     */
+    public ByteBuffer allocate()
+    {
+        if(spareCount == 0) {
+            ByteBuffer slab = ByteBuffer.allocateDirect(blocksPerSlab * blockBytes);
+            slabCount++;
+            if(spare.length < blocksPerSlab) {
+                spare = Arrays.copyOf(spare, blocksPerSlab);
+            }
+            for(int n = blocksPerSlab - 1; n >= 0; n--) {
+                spare[spareCount++] = slab.slice(n * blockBytes, blockBytes);
+            }
+        }
+        ByteBuffer block = spare[--spareCount];
+        spare[spareCount] = null;
+        for(int index = 0; index < blockBytes; index += Long.BYTES) {
+            block.putLong(index, 0);
+        }
+        return block;
+    }
+
+    /**
+     * Hand a block back to the arena. It must no longer be used.
+     * @param block A block taken from this arena.
+     */
+    public void release(ByteBuffer block)
+    {
+        if(spareCount == spare.length) {
+            spare = Arrays.copyOf(spare, spareCount * 2);
+        }
+        spare[spareCount++] = block;
+    }
+
+    /**
+     * @return The memory the arena has taken from outside the heap, in
+     *         bytes.
+     */
+    public long getReservedBytes()
+    {
+        return (long) slabCount * blocksPerSlab * blockBytes;
+    }
+}
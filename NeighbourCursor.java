@@ -0,0 +1,128 @@
+import java.util.Random;
+
+/**
+ * Steps through the cells adjacent to a cell of a field in a random order
+ * without allocating anything. A cursor is created once and restarted at
+ * each cell it is needed for:
+ *
+ *     cursor.start(field, cell, random);
+ *     while(cursor.next()) {
+ *         ... cursor.getCell() ...
+ *     }
+ *
+ * The order is one of the permutations in the table of Field, chosen by
+ * the random number generator given, so it is random in the same way as
+ * the cells of a Neighbourhood.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class NeighbourCursor
+{
+    // The field being visited.
+    private Field field;
+    // The depth and width of the field.
+    private int depth, width;
+    // The cell whose neighbours are visited.
+    private int row, col;
+    // The start of the chosen ordering within Field.PERMUTATIONS.
+    private int permutation;
+    // How many entries of the ordering have been used.
+    private int position;
+    // The neighbour the cursor is on.
+    private int currentRow, currentCol;
+
+    /**
+     * Start visiting the cells adjacent to the given cell.
+     * @param field The field the cell is in.
+     * @param cell The row-major index of the cell.
+     * @param random The random number generator choosing the order.
+     */
+    public void start(Field field, long cell, Random random)
+    {
+        start(field, field.rowOf(cell), field.colOf(cell), Field.randomPermutation(random));
+    }
+
+    /**
+     * Start visiting the cells adjacent to the given cell in the order
+     * of a permutation.
+     * @param permutation The start of the permutation within Field.PERMUTATIONS.
+     */
+    private void start(Field field, int row, int col, int permutation)
+    {
+        this.field = field;
+        depth = field.getDepth();
+        width = field.getWidth();
+        this.row = row;
+        this.col = col;
+        this.permutation = permutation;
+        position = 0;
+    }
+
+    /**
+     * @return The row-major index of the current neighbour.
+     */
+    public long getCell()
+    {
+        return field.cellOf(currentRow, currentCol);
+    }
+
+    /**
+     * Move to the next adjacent cell that lies within the field.
+     * @return true if there is such a cell, false once all have been visited.
+     */
+    public boolean next()
+    {
+        while(position < Field.ADJACENT_COUNT) {
+            int offset = Field.PERMUTATIONS[permutation + position++];
+            int nextRow = row + Field.ROW_OFFSETS[offset];
+            int nextCol = col + Field.COL_OFFSETS[offset];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                currentRow = nextRow;
+                currentCol = nextCol;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The row of the current neighbour.
+     */
+    public int getRow()
+    {
+        return currentRow;
+    }
+
+    /**
+     * @return The column of the current neighbour.
+     */
+    public int getCol()
+    {
+        return currentCol;
+    }
+
+    /**
+     * @return The species of the animal in the current neighbour.
+     */
+    public byte getSpecies()
+    {
+        return field.getSpeciesAt(currentRow, currentCol);
+    }
+
+    /**
+     * @return true if the current neighbour is empty.
+     */
+    public boolean isFree()
+    {
+        return field.getSpeciesAt(currentRow, currentCol) == Species.EMPTY;
+    }
+
+    /**
+     * @return The location of the current neighbour.
+     */
+    public Location getLocation()
+    {
+        return field.getLocation(currentRow, currentCol);
+    }
+}
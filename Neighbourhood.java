@@ -0,0 +1,186 @@
+/**
+ * A snapshot of the cells adjacent to an entity, taken by the field in a
+ * single pass. The cells are sorted into prey the entity can eat, mates of
+ * its own species and the opposite gender, and free cells. Within each
+ * group the cells are in a random order, drawn from the permutation table
+ * of Field.
+ *
+ * The SpeciesKernel takes free cells from the snapshot one at a time, for
+ * the young of the entity and then to move it, so the same cell is never
+ * handed out twice. The snapshot is only valid until the field is next
+ * changed by another entity, and a Neighbourhood object is reused for
+ * every scan.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class Neighbourhood
+{
+    // The prey cells.
+    private final int[] preyRows = new int[Field.ADJACENT_COUNT];
+    private final int[] preyCols = new int[Field.ADJACENT_COUNT];
+    private int preyCount;
+    // The cells holding a mate.
+    private final int[] mateRows = new int[Field.ADJACENT_COUNT];
+    private final int[] mateCols = new int[Field.ADJACENT_COUNT];
+    private int mateCount;
+    // The free cells, and how many of them have been taken.
+    private final int[] freeRows = new int[Field.ADJACENT_COUNT];
+    private final int[] freeCols = new int[Field.ADJACENT_COUNT];
+    private int freeCount;
+    private int freeTaken;
+    // The free cell most recently taken.
+    private int row, col;
+    // The field that was scanned.
+    private Field field;
+
+    /**
+     * Forget the cells of the previous scan and start a new one.
+     * @param field The field being scanned.
+     */
+    void start(Field field)
+    {
+        this.field = field;
+        preyCount = 0;
+        mateCount = 0;
+        freeCount = 0;
+        freeTaken = 0;
+    }
+
+    /**
+     * Record a cell holding prey.
+     */
+    void addPrey(int row, int col)
+    {
+        preyRows[preyCount] = row;
+        preyCols[preyCount++] = col;
+    }
+
+    /**
+     * Record a cell holding a mate.
+     */
+    void addMate(int row, int col)
+    {
+        mateRows[mateCount] = row;
+        mateCols[mateCount++] = col;
+    }
+
+    /**
+     * Record a free cell.
+     */
+    void addFree(int row, int col)
+    {
+        freeRows[freeCount] = row;
+        freeCols[freeCount++] = col;
+    }
+
+    /**
+     * @return The number of adjacent cells holding prey.
+     */
+    public int getPreyCount()
+    {
+        return preyCount;
+    }
+
+    /**
+     * @param n Which prey cell, counting from 0.
+     * @return The row of the prey cell.
+     */
+    public int getPreyRow(int n)
+    {
+        return preyRows[n];
+    }
+
+    /**
+     * @param n Which prey cell, counting from 0.
+     * @return The column of the prey cell.
+     */
+    public int getPreyCol(int n)
+    {
+        return preyCols[n];
+    }
+
+    /**
+     * @return true if a mate of the opposite gender is adjacent.
+     */
+    public boolean hasMate()
+    {
+        return mateCount > 0;
+    }
+
+    /**
+     * @return The number of adjacent cells holding a mate.
+     */
+    public int getMateCount()
+    {
+        return mateCount;
+    }
+
+    /**
+     * @return The number of free cells that have not been taken yet.
+     */
+    public int getFreeCount()
+    {
+        return freeCount - freeTaken;
+    }
+
+    /**
+     * Take the next free cell. Its coordinates are then available from
+     * getRow and getCol.
+     * @return true if there was a free cell left to take.
+     */
+    public boolean takeFree()
+    {
+        if(freeTaken < freeCount) {
+            row = freeRows[freeTaken];
+            col = freeCols[freeTaken++];
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take the next free cell.
+     * @return The location of the free cell, or null if there are none left.
+     */
+    public Location takeFreeLocation()
+    {
+        if(takeFree()) {
+            return field.getLocation(row, col);
+        }
+        return null;
+    }
+
+    /**
+     * @return The row of the free cell most recently taken.
+     */
+    public int getRow()
+    {
+        return row;
+    }
+
+    /**
+     * @return The column of the free cell most recently taken.
+     */
+    public int getCol()
+    {
+        return col;
+    }
+
+    /**
+     * @return The row-major index of the free cell most recently taken.
+     */
+    public long getCell()
+    {
+        return field.cellOf(row, col);
+    }
+
+    /**
+     * @param n Which prey cell, counting from 0.
+     * @return The row-major index of the prey cell.
+     */
+    public long getPreyCell(int n)
+    {
+        return field.cellOf(preyRows[n], preyCols[n]);
+    }
+}
@@ -0,0 +1,400 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the entities of an EntityStore on one thread or several. At the
+ * start of each step the field is cut into bands of whole rows, each
+ * holding about the same number of entities, so the bands follow the
+ * population as its density changes. The bands are coloured alternately, and all the bands
+ * of one colour are run at the same time on a ForkJoinPool, followed by
+ * all the bands of the other colour.
+ *
+ * An entity only ever reads or changes the cells next to it, so while a
+ * band runs it can reach one row into the bands either side of it. Every
+ * band is at least two rows deep, so two bands of the same colour never
+ * reach the same cell. This gives the rules for the edges of a band:
+ *
+ *   - an entity may move, eat, or give birth into the edge row of a
+ *     neighbouring band, which is idle while its neighbours run;
+ *   - an entity that moves into another band has already acted, and is
+ *     not run again by that band during the step;
+ *   - births take the slot and id of an animal of their species that
+ *     died in the band's rows at the start of the step, or else go into
+ *     small blocks of store slots the band takes as it needs them, and
+ *     are put in join order when the store is compacted; births do not
+ *     act until the next step;
+ *   - seeds, which can land anywhere in the field, are held back and
+ *     planted once all the bands of the colour have finished;
+ *   - once its entities have run, a band runs the plants of its rows.
+ *     The plants to run are noted for the whole field before any band
+ *     starts, so a plant grown into the edge of another band does not
+ *     run until the next step.
+ *
+ * The deaths from old age and starvation due in a step are taken by the
+ * shared kernel before the field is cut into bands, and the timers of the
+ * animals a band feeds, breeds or kills are set when the band is joined.
+ *
+ * Only the entities of species that do anything in the phase and weather
+ * of the step are listed for the bands, so idle ones cost nothing beyond
+ * the partition.
+ *
+ * Every entity draws its random numbers from a Randomizer stream keyed
+ * by the step and its cell, and the bands are joined in order, so a run
+ * can be repeated whatever the number of threads. A run on a single
+ * thread goes through the same bands, so it repeats a run on several.
+ *
+ * The engine also populates the field, sharing the rows out between the
+ * threads. Each row is counted first, so that its animals can be given
+ * a block of store slots of their own in row order, and then filled.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class ParallelEngine
+{
+    // The fewest rows a band may have.
+    private static final int MIN_BAND_DEPTH = 2;
+    // The number of bands to aim for. There are several per thread so
+    // that threads can share out the work of slow bands, and the number
+    // does not depend on the threads so that runs repeat on any machine.
+    private static final int TARGET_BANDS = 64;
+
+    // The threads running the bands.
+    private final ForkJoinPool pool;
+    // The field the entities live in.
+    private final Field field;
+    // The state of the entities.
+    private final EntityStore store;
+    // The kernel that holds the state shared by all the bands.
+    private final SpeciesKernel kernel;
+    // A kernel for each band.
+    private final List<SpeciesKernel> bandKernels;
+
+    // The first row of each band, followed by the depth of the field.
+    private int[] bandStart;
+    // The number of bands in the current step.
+    private int bandCount;
+    // The band each row belongs to.
+    private final int[] bandOfRow;
+    // The number of entities in each row.
+    private final int[] rowCounts;
+    // The number of entities in each row that are active in the step.
+    private final int[] activeCounts;
+    // The entities of every band, band after band.
+    private int[] entities;
+    // Where the entities of each band start in the list.
+    private int[] entityStart;
+
+    /**
+     * Create an engine running the entities of a field.
+     * @param field The field the entities live in.
+     * @param store The state of the entities.
+     * @param kernel The kernel that holds the state shared by all bands.
+     * @param threads The number of threads to use.
+     */
+    public ParallelEngine(Field field, EntityStore store, SpeciesKernel kernel, int threads)
+    {
+        this.field = field;
+        this.store = store;
+        this.kernel = kernel;
+        pool = new ForkJoinPool(threads);
+        bandKernels = new ArrayList<>();
+        bandStart = new int[1];
+        bandOfRow = new int[field.getDepth()];
+        rowCounts = new int[field.getDepth()];
+        activeCounts = new int[field.getDepth()];
+        entities = new int[0];
+        entityStart = new int[1];
+    }
+
+    /**
+     * Let every entity act for one step of the day.
+     * @param environment The conditions of the current step.
+     */
+    public void act(Environment environment)
+    {
+        step(environment, true);
+    }
+
+    /**
+     * Let every entity sleep for one step of the night.
+     * @param environment The conditions of the current step.
+     */
+    public void sleep(Environment environment)
+    {
+        step(environment, false);
+    }
+
+    /**
+     * Populate the empty field at random, row by row. The occupant of each
+     * cell is chosen from a stream keyed by its row, and its age, food
+     * level and gender from a stream keyed by its cell, so the field is
+     * the same whatever the number of threads.
+     */
+    public void populate()
+    {
+        int depth = field.getDepth();
+        int[] rowSlots = new int[depth + 1];
+        runRows((bandKernel, row) -> rowSlots[row + 1] = bandKernel.countAnimals(row));
+        for(int row = 0; row < depth; row++) {
+            rowSlots[row + 1] += rowSlots[row];
+        }
+        int first = store.reserve(rowSlots[depth]);
+        field.setConcurrent(true);
+        runRows((bandKernel, row) -> bandKernel.populateRow(row, first + rowSlots[row]));
+        field.setConcurrent(false);
+        kernel.finishPopulation();
+    }
+
+    /**
+     * Stop the threads of the engine.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Run one step, one colour of bands after the other.
+     * @param environment The conditions of the current step.
+     * @param day true to run the day behaviour, false for the night.
+     */
+    private void step(Environment environment, boolean day)
+    {
+        Environment.Phase phase = day ? Environment.Phase.DAY : Environment.Phase.NIGHT;
+        kernel.startAnimals(phase, environment.getWeather());
+        partition(SpeciesConfig.activeSpecies(phase, environment.getWeather()));
+        long step = kernel.nextStep();
+        kernel.startPlants(environment.getWeather());
+        for(int colour = 0; colour < 2; colour++) {
+            List<BandTask> tasks = new ArrayList<>();
+            for(int band = colour; band < bandCount; band += 2) {
+                SpeciesKernel bandKernel = bandKernels.get(band);
+                bandKernel.startBand(kernel, step);
+                tasks.add(new BandTask(bandKernel, environment, day, band));
+            }
+            field.setConcurrent(true);
+            pool.invoke(new ColourTask(tasks));
+            field.setConcurrent(false);
+            for(int band = colour; band < bandCount; band += 2) {
+                kernel.joinBand(bandKernels.get(band));
+            }
+        }
+    }
+
+    /**
+     * Cut the field into bands holding about the same number of entities
+     * and plants, and list the active entities of each band.
+     * @param active The species active in the step, one bit per id.
+     */
+    private void partition(int active)
+    {
+        int depth = field.getDepth();
+        Arrays.fill(rowCounts, 0);
+        Arrays.fill(activeCounts, 0);
+        int total = 0;
+        int size = store.size();
+        for(int index = 0; index < size; index++) {
+            if(store.isAlive(index)) {
+                int row = field.rowOf(store.getCell(index));
+                rowCounts[row]++;
+                if((active & (1 << store.getSpecies(index))) != 0) {
+                    activeCounts[row]++;
+                }
+                total++;
+            }
+        }
+        for(int row = 0; row < depth; row++) {
+            int plants = field.countInRow(Species.PLANT, row);
+            rowCounts[row] += plants;
+            total += plants;
+        }
+
+        int wanted = Math.max(1, Math.min(TARGET_BANDS, depth / MIN_BAND_DEPTH));
+        int target = Math.max(1, (total + wanted - 1) / wanted);
+        if(bandStart.length < wanted + 1) {
+            bandStart = new int[wanted + 1];
+        }
+        bandCount = 0;
+        int start = 0;
+        int inBand = 0;
+        for(int row = 0; row < depth; row++) {
+            inBand += rowCounts[row];
+            boolean deepEnough = row + 1 - start >= MIN_BAND_DEPTH;
+            boolean roomLeft = depth - (row + 1) >= MIN_BAND_DEPTH;
+            if(inBand >= target && deepEnough && roomLeft && bandCount < wanted - 1) {
+                bandStart[bandCount++] = start;
+                start = row + 1;
+                inBand = 0;
+            }
+        }
+        bandStart[bandCount++] = start;
+        bandStart[bandCount] = depth;
+
+        while(bandKernels.size() < bandCount) {
+            bandKernels.add(new SpeciesKernel(field, store));
+        }
+        listEntities(size, active);
+    }
+
+    /**
+     * Sort the live, active entities into the bands holding them, keeping
+     * the order of the store within each band. The slots of the entities
+     * that died at the start of the step go to the bands holding the cells
+     * they died in, for births to reuse.
+     * @param size The number of slots in use in the store.
+     * @param active The species active in the step, one bit per id.
+     */
+    private void listEntities(int size, int active)
+    {
+        for(int band = 0; band < bandCount; band++) {
+            for(int row = bandStart[band]; row < bandStart[band + 1]; row++) {
+                bandOfRow[row] = band;
+            }
+        }
+        if(entityStart.length < bandCount + 1) {
+            entityStart = new int[bandCount + 1];
+        }
+        Arrays.fill(entityStart, 0);
+        for(int row = 0; row < field.getDepth(); row++) {
+            entityStart[bandOfRow[row] + 1] += activeCounts[row];
+        }
+        for(int band = 0; band < bandCount; band++) {
+            entityStart[band + 1] += entityStart[band];
+        }
+        if(entities.length < entityStart[bandCount]) {
+            entities = new int[entityStart[bandCount]];
+        }
+        for(int band = 0; band < bandCount; band++) {
+            bandKernels.get(band).clearFreeSlots();
+        }
+        int[] next = Arrays.copyOf(entityStart, bandCount);
+        for(int index = 0; index < size; index++) {
+            int band = bandOfRow[field.rowOf(store.getCell(index))];
+            if(!store.isAlive(index)) {
+                bandKernels.get(band).addFreeSlot(index);
+            }
+            else if((active & (1 << store.getSpecies(index))) != 0) {
+                entities[next[band]++] = index;
+            }
+        }
+    }
+
+    /**
+     * Do some work on every row of the field, with the rows cut into
+     * TARGET_BANDS bands of about the same depth and the bands run at the
+     * same time, each with a kernel of its own.
+     * @param work The work to do on each row.
+     */
+    private void runRows(RowWork work)
+    {
+        int depth = field.getDepth();
+        int bands = Math.max(1, Math.min(TARGET_BANDS, depth));
+        while(bandKernels.size() < bands) {
+            bandKernels.add(new SpeciesKernel(field, store));
+        }
+        List<RowTask> tasks = new ArrayList<>();
+        for(int band = 0; band < bands; band++) {
+            tasks.add(new RowTask(bandKernels.get(band), work,
+                                  (int) ((long) depth * band / bands),
+                                  (int) ((long) depth * (band + 1) / bands)));
+        }
+        pool.invoke(new ColourTask(tasks));
+    }
+
+    /**
+     * Work done on one row of the field by the kernel of a band.
+     */
+    private interface RowWork
+    {
+        void run(SpeciesKernel bandKernel, int row);
+    }
+
+    /**
+     * Runs a list of tasks together, such as all the bands of one colour.
+     */
+    @SuppressWarnings("serial")
+    private static class ColourTask extends RecursiveAction
+    {
+        // The tasks to run.
+        private final List<? extends RecursiveAction> tasks;
+
+        ColourTask(List<? extends RecursiveAction> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        protected void compute()
+        {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Does some work on each row of one band.
+     */
+    @SuppressWarnings("serial")
+    private static class RowTask extends RecursiveAction
+    {
+        // The kernel of the band.
+        private final SpeciesKernel bandKernel;
+        // The work to do on each row.
+        private final RowWork work;
+        // The first row of the band, and the row after the last.
+        private final int fromRow, toRow;
+
+        RowTask(SpeciesKernel bandKernel, RowWork work, int fromRow, int toRow)
+        {
+            this.bandKernel = bandKernel;
+            this.work = work;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        protected void compute()
+        {
+            for(int row = fromRow; row < toRow; row++) {
+                work.run(bandKernel, row);
+            }
+        }
+    }
+
+    /**
+     * Runs the entities of one band.
+     */
+    @SuppressWarnings("serial")
+    private class BandTask extends RecursiveAction
+    {
+        // The kernel running the band.
+        private final SpeciesKernel bandKernel;
+        // The conditions of the current step.
+        private final Environment environment;
+        // Whether to run the day or the night behaviour.
+        private final boolean day;
+        // The band.
+        private final int band;
+
+        BandTask(SpeciesKernel bandKernel, Environment environment, boolean day, int band)
+        {
+            this.bandKernel = bandKernel;
+            this.environment = environment;
+            this.day = day;
+            this.band = band;
+        }
+
+        protected void compute()
+        {
+            if(day) {
+                bandKernel.act(environment, entities, entityStart[band], entityStart[band + 1]);
+            }
+            else {
+                bandKernel.sleep(environment, entities, entityStart[band], entityStart[band + 1]);
+            }
+            bandKernel.runPlants(bandStart[band], bandStart[band + 1]);
+        }
+    }
+}
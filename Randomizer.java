@@ -4,6 +4,12 @@ import java.util.Random;
  * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
  * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
  * 'useShared' to false to get different random behaviour every time.
+ *
+ * Besides the shared generator, Randomizer hands out streams keyed by a step, a kind
+ * and an id, such as the cell of an animal. A stream gives the same numbers for the
+ * same key whatever else has been drawn before, so parts of a step can be run in any
+ * order, or on several threads, and still give the same result. Each Stream belongs
+ * to one thread and is re-keyed rather than replaced, so nothing is shared or allocated.
  * 
  * @author Aamir Faaiz
  * @version Feb-2019
@@ -12,10 +18,24 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
+    // The seed in use, which is SEED unless it has been changed.
+    private static long seed = SEED;
     // A shared Random object, if required.
     private static final Random rand = new Random(SEED);
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
+    // The golden ratio as a 64 bit fraction, used to spread keys and counters apart.
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // The kinds of stream, so that streams with the same step and id never coincide.
+    // A stream for an animal or plant, keyed by the cell it starts the step in.
+    public static final int ENTITY_STREAM = 0;
+    // A stream for a seed held back by a band, keyed by the cell it landed in.
+    public static final int SEED_STREAM = 1;
+    // The stream choosing the weather of a step.
+    public static final int WEATHER_STREAM = 2;
+    // The stream choosing the occupants of a row of a new field, keyed by the row.
+    public static final int POPULATE_STREAM = 3;
 
     /**
      * Constructor for objects of class Randomizer
@@ -46,7 +66,97 @@ public class Randomizer
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            rand.setSeed(seed);
+        }
+    }
+
+    /**
+     * Change the seed of the randomization, for the shared generator and
+     * for every stream keyed from now on.
+     * @param newSeed The new seed.
+     */
+    public static void setSeed(long newSeed)
+    {
+        seed = newSeed;
+        reset();
+    }
+
+    /**
+     * @return The seed of the randomization.
+     */
+    public static long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Scramble a value so that nearby values give unrelated results.
+     * This is the finaliser of the SplitMix64 generator.
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * A counter-based random number generator. The n-th number of a stream
+     * is a hash of its key and n, so a stream can be moved to a new key at
+     * no cost. A Stream extends Random so that it can be used wherever the
+     * shared generator is, but it must not be shared between threads.
+     */
+    @SuppressWarnings("serial")
+    public static class Stream extends Random
+    {
+        // The hashed key of the stream.
+        private long key;
+        // The number of values drawn since the stream was keyed.
+        private long counter;
+
+        /**
+         * Create a stream keyed by the seed alone.
+         */
+        public Stream()
+        {
+            super(seed);
+        }
+
+        /**
+         * Move the stream to the given key and start it from the beginning.
+         * @param step The step of the simulation.
+         * @param kind The kind of stream, such as ENTITY_STREAM.
+         * @param id What the stream is for within the step, such as a cell.
+         */
+        public void reset(long step, int kind, long id)
+        {
+            long hash = mix(seed + GOLDEN_GAMMA * step);
+            hash = mix(hash + GOLDEN_GAMMA * (kind + 1));
+            key = mix(hash + GOLDEN_GAMMA * id);
+            counter = 0;
+        }
+
+        /**
+         * Key the stream by a single seed, as Random.setSeed does.
+         * @param seed The seed.
+         */
+        public void setSeed(long seed)
+        {
+            key = mix(seed);
+            counter = 0;
+        }
+
+        /**
+         * Generate the next random bits of the stream.
+         * @param bits The number of bits wanted.
+         * @return The bits, in the low end of the result.
+         */
+        protected int next(int bits)
+        {
+            counter++;
+            return (int) (mix(key + GOLDEN_GAMMA * counter) >>> (64 - bits));
         }
     }
 }
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that runs of the simulation repeat. The same field, from the
+ * same seed, is run headless on 1, 2, 3 and 4 threads, and the
+ * population summary of every run is taken every SUMMARY_INTERVAL steps.
+ * The field is also run half way on two threads, saved to a checkpoint,
+ * restored on three threads and run to the end. The runs pass if their
+ * summaries are all the same, and the checkpoint saved at the end of the
+ * restored run is the same, byte for byte, as the one saved at the end of
+ * the run on one thread.
+ *
+ *     java ReproducibilityCheck [depth width steps seed]
+ *
+ * The check prints the summaries that differ, if any, and exits with
+ * status 1 if the check fails.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class ReproducibilityCheck
+{
+    // The field, steps and seed checked when none are given.
+    private static final int DEFAULT_DEPTH = 200;
+    private static final int DEFAULT_WIDTH = 300;
+    private static final int DEFAULT_STEPS = 300;
+    private static final long DEFAULT_SEED = 7;
+    // The number of steps between the summaries compared.
+    private static final int SUMMARY_INTERVAL = 10;
+    // The numbers of threads to compare.
+    private static final int[] THREADS = {1, 2, 3, 4};
+
+    // The size of the field, the number of steps, and the seed.
+    private final int depth, width, steps;
+    private final long seed;
+    // Whether every comparison so far has passed.
+    private boolean passed;
+
+    /**
+     * Create a check of the given runs.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @param steps The number of steps to run.
+     * @param seed The seed of the runs.
+     */
+    public ReproducibilityCheck(int depth, int width, int steps, long seed)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+        this.seed = seed;
+        passed = true;
+    }
+
+    /**
+     * Run the check.
+     * @param args The depth and width of the field, the number of steps
+     *             and the seed, or nothing for the defaults.
+     */
+    public static void main(String[] args)
+    {
+        ReproducibilityCheck check;
+        if(args.length == 0) {
+            check = new ReproducibilityCheck(DEFAULT_DEPTH, DEFAULT_WIDTH, DEFAULT_STEPS, DEFAULT_SEED);
+        }
+        else if(args.length == 4) {
+            check = new ReproducibilityCheck(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                                             Integer.parseInt(args[2]), Long.parseLong(args[3]));
+        }
+        else {
+            System.out.println("Usage: java ReproducibilityCheck [depth width steps seed]");
+            return;
+        }
+        try {
+            if(!check.run()) {
+                System.exit(1);
+            }
+        }
+        catch(IOException e) {
+            System.out.println("Cannot save or restore the checkpoints: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run the simulation on every number of threads, and through a
+     * checkpoint, and compare the runs.
+     * @return true if the check passed.
+     * @throws IOException If a checkpoint cannot be saved or restored.
+     */
+    public boolean run() throws IOException
+    {
+        Path directory = Files.createTempDirectory("checkpoints");
+        Path end = directory.resolve("end");
+        Path middle = directory.resolve("middle");
+        Path restoredEnd = directory.resolve("restored-end");
+        try {
+            List<String> expected = null;
+            for(int threads : THREADS) {
+                List<String> summaries = runFromStart(threads, expected == null ? end : null);
+                if(expected == null) {
+                    expected = summaries;
+                }
+                else {
+                    compare("1 thread", expected, threads + " threads", summaries);
+                }
+            }
+            compare("1 thread", expected, "restored", runThroughCheckpoint(middle, restoredEnd));
+            if(Files.mismatch(end, restoredEnd) != -1) {
+                System.out.println("The checkpoints saved at the end differ.");
+                passed = false;
+            }
+            System.out.println(expected.get(expected.size() - 1));
+        }
+        finally {
+            Files.deleteIfExists(end);
+            Files.deleteIfExists(middle);
+            Files.deleteIfExists(restoredEnd);
+            Files.deleteIfExists(directory);
+        }
+        System.out.println(passed ? "Runs on 1 to 4 threads, and through a checkpoint, agree."
+                                  : "The check FAILED.");
+        return passed;
+    }
+
+    /**
+     * Run a new simulation from the start.
+     * @param threads The number of threads to run it on.
+     * @param checkpoint The file to save a checkpoint to at the end, or
+     *                   null for none.
+     * @return Its summaries.
+     * @throws IOException If the checkpoint cannot be saved.
+     */
+    private List<String> runFromStart(int threads, Path checkpoint) throws IOException
+    {
+        Randomizer.setSeed(seed);
+        Simulator simulator = new Simulator(depth, width, threads, true);
+        List<String> summaries = new ArrayList<>();
+        summaries.add(simulator.getSummary());
+        summarise(simulator, steps, summaries);
+        if(checkpoint != null) {
+            simulator.saveCheckpoint(checkpoint.toString());
+        }
+        simulator.shutdown();
+        return summaries;
+    }
+
+    /**
+     * Run a new simulation half way on two threads and save a checkpoint,
+     * then restore it on three threads, run it to the end, and save
+     * another checkpoint.
+     * @param middle The file to save the checkpoint half way to.
+     * @param end The file to save the checkpoint at the end to.
+     * @return The summaries of the simulation before and after it was
+     *         restored.
+     * @throws IOException If a checkpoint cannot be saved or restored.
+     */
+    private List<String> runThroughCheckpoint(Path middle, Path end) throws IOException
+    {
+        // Stop on a summary, so that the summaries line up with the others.
+        int half = steps / 2 / SUMMARY_INTERVAL * SUMMARY_INTERVAL;
+        Randomizer.setSeed(seed);
+        Simulator simulator = new Simulator(depth, width, 2, true);
+        List<String> summaries = new ArrayList<>();
+        summaries.add(simulator.getSummary());
+        summarise(simulator, half, summaries);
+        simulator.saveCheckpoint(middle.toString());
+        simulator.shutdown();
+
+        simulator = Simulator.restore(middle.toString(), 3, true);
+        summarise(simulator, steps - half, summaries);
+        simulator.saveCheckpoint(end.toString());
+        simulator.shutdown();
+        return summaries;
+    }
+
+    /**
+     * Run a simulation for a number of steps, adding its summary to a
+     * list every SUMMARY_INTERVAL steps. A simulation that is no longer
+     * viable stops, and its summary is added again, unchanged.
+     * @param simulator The simulation.
+     * @param count The number of steps.
+     * @param summaries The list of summaries.
+     */
+    private void summarise(Simulator simulator, int count, List<String> summaries)
+    {
+        for(int step = 0; step < count; step += SUMMARY_INTERVAL) {
+            simulator.simulate(Math.min(SUMMARY_INTERVAL, count - step));
+            summaries.add(simulator.getSummary());
+        }
+    }
+
+    /**
+     * Compare the summaries of two runs, printing the first that differ.
+     * @param name The name of the first run.
+     * @param expected The summaries of the first run.
+     * @param otherName The name of the second run.
+     * @param summaries The summaries of the second run.
+     */
+    private void compare(String name, List<String> expected, String otherName, List<String> summaries)
+    {
+        for(int n = 0; n < expected.size(); n++) {
+            if(!expected.get(n).equals(summaries.get(n))) {
+                System.out.println(name + ":  " + expected.get(n));
+                System.out.println(otherName + ": " + summaries.get(n));
+                passed = false;
+                return;
+            }
+        }
+    }
+}
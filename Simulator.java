@@ -1,7 +1,10 @@
-import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.io.IOException;
 import java.awt.Color;
 
 /**
@@ -18,24 +21,23 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
-    // The probability that a cat will be created in any given grid position.
-    private static final double CAT_CREATION_PROBABILITY = 0.05;
-    // The probability that a Mouse will be created in any given grid position.
-    private static final double MOUSE_CREATION_PROBABILITY = 0.20;
-    // The probability that a owl will be created in any given grid position.
-    private static final double OWL_CREATION_PROBABILITY= 0.02;
-    // The probability that a squirrel will be created in any given grid position.
-    private static final double SQUIRREL_CREATION_PROBABILITY= 0.18;
-    // The probability that a squirrel will be created in any given grid position.
-    private static final double PLANT_CREATION_PROBABILITY= 0.5;
-
-    // The probability that a snake will be created in any given grid position.
-    private static final double SNAKE_CREATION_PROBABILITY= 0.09;
+    // The number of steps between population summaries in batch mode.
+    private static final int SUMMARY_INTERVAL = 100;
+    // The system properties naming the file main() writes checkpoints to,
+    // and the number of steps between them.
+    public static final String CHECKPOINT_PROPERTY = "simulator.checkpoint";
+    public static final String CHECKPOINT_INTERVAL_PROPERTY = "simulator.checkpoint.interval";
+    // The default number of steps between checkpoints.
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
 
 
     
-    // List of animals in the field.
-    private List<Animal> animals;
+    // The state of the animals.
+    private EntityStore store;
+    // The species behaviour run on the entity store.
+    private SpeciesKernel kernel;
+    // The engine running the kernel, on one thread or several.
+    private ParallelEngine engine;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
@@ -43,17 +45,37 @@ public class Simulator
     // A graphical view of the simulation.
     // A graphical view of the simulation.
     private List<SimulatorView> views;
+    // Statistics on the field, used to judge whether the simulation is
+    // viable when there are no views.
+    private FieldStats stats;
+    // Whether the simulation runs without views and without pausing.
+    private boolean headless;
+    // Scratch space for counting each species, indexed by species id.
+    private int[] speciesCounts;
 
-    //The current time status ; can be either day/night
-    private String timeStatus;
+    //The conditions of the current step: its number, day/night and the weather
+    private Environment environment;
 
     private int counter;
 
     //The weather types in this simulation
-    private static final String[] weatherType = {"Sunny","Rainy","Windy"};
+    private static final Weather[] weatherType = Weather.values();
 
     //The current weather in the simulation
-    private  String weather;
+    private  Weather weather;
+    //The random numbers choosing the weather, keyed afresh every step
+    private Randomizer.Stream weatherStream;
+
+    // The file checkpoints are written to every checkpointInterval
+    // steps, or null if they are not.
+    private String checkpointFile;
+    private int checkpointInterval;
+    // The image of the last checkpoint taken, kept for the next one.
+    private Checkpoint checkpoint;
+    // The thread writing checkpoints in the background, and the write in
+    // progress, if there is one.
+    private ExecutorService checkpointWriter;
+    private Future<?> checkpointWrite;
 
 
     
@@ -71,6 +93,45 @@ public class Simulator
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, 1);
+    }
+
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param threads The number of threads to run the simulation on.
+     */
+    public Simulator(int depth, int width, int threads)
+    {
+        this(depth, width, threads, false);
+    }
+
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param threads The number of threads to run the simulation on.
+     * @param headless If true, no views are created and the simulation runs
+     *                 without pausing between steps, so that no AWT classes
+     *                 are needed.
+     */
+    public Simulator(int depth, int width, int threads, boolean headless)
+    {
+        this(depth, width, threads, headless, true);
+    }
+
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param threads The number of threads to run the simulation on.
+     * @param headless If true, no views are created.
+     * @param populate If false, the field is left empty, for the state of
+     *                 a checkpoint to be read into.
+     */
+    private Simulator(int depth, int width, int threads, boolean headless, boolean populate)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
@@ -78,11 +139,66 @@ public class Simulator
             depth = DEFAULT_DEPTH;
             width = DEFAULT_WIDTH;
         }
+        if(threads <= 0) {
+            System.out.println("The number of threads must be greater than zero.");
+            System.out.println("Using one thread.");
+            threads = 1;
+        }
 
-        animals = new ArrayList<>();
+        weatherStream = new Randomizer.Stream();
         field = new Field(depth, width);
+        store = new EntityStore(field);
+        kernel = new SpeciesKernel(field, store);
+        engine = new ParallelEngine(field, store, kernel, threads);
 
+        this.headless = headless;
+        stats = new FieldStats();
+        speciesCounts = new int[Species.COUNT];
         views = new ArrayList<>();
+        if(!headless) {
+            createViews(depth, width);
+        }
+        if(populate) {
+            // Setup a valid starting point.
+            reset();
+        }
+    }
+
+    /**
+     * Create a simulation from a checkpoint written by saveCheckpoint(),
+     * or by a simulation writing checkpoints as it runs. The simulation
+     * carries on from the step the checkpoint was taken at, and runs as
+     * the simulation it was taken from would have, provided it is run with
+     * the same species parameters. The number of threads need not be the
+     * same, since a run repeats whatever the number of threads.
+     * @param fileName The name of the checkpoint file.
+     * @param threads The number of threads to run the simulation on.
+     * @param headless If true, no views are created and the simulation runs
+     *                 without pausing between steps.
+     * @return The simulation.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public static Simulator restore(String fileName, int threads, boolean headless) throws IOException
+    {
+        try(Checkpoint image = Checkpoint.open(fileName)) {
+            int depth = image.getCount(Integer.MAX_VALUE);
+            int width = image.getCount(Integer.MAX_VALUE);
+            if(depth == 0 || width == 0) {
+                throw new IOException("The checkpoint is damaged");
+            }
+            Simulator simulator = new Simulator(depth, width, threads, headless, false);
+            simulator.readFrom(image);
+            return simulator;
+        }
+    }
+
+    /**
+     * Create the grid and graph views of the simulation.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     */
+    private void createViews(int depth, int width)
+    {
         SimulatorView view = new GridView(depth, width);
         view.setColor(Mouse.class, Color.ORANGE);
         view.setColor(Cat.class, Color.BLUE);
@@ -100,13 +216,67 @@ public class Simulator
         view.setColor(Squirrel.class, Color.GRAY);
         view.setColor(Snake.class, Color.YELLOW);
         views.add(view);
-        // Setup a valid starting point.
-        reset();
     }
 
+    /**
+     * Run the simulation. With no arguments the default field is shown in
+     * the grid and graph views. Otherwise the simulation is run headless,
+     * and prints a population summary every
+     * SUMMARY_INTERVAL steps and its throughput at the end. It either
+     * starts from a new field or carries on from a checkpoint:
+     *
+     *     java Simulator depth width steps [seed [threads [species.properties]]]
+     *     java Simulator -restore checkpoint steps [threads [species.properties]]
+     *
+     * The last argument names the file of species parameters to use. If
+     * the system property simulator.checkpoint names a file, a checkpoint
+     * is written to it every simulator.checkpoint.interval steps, or every
+     * DEFAULT_CHECKPOINT_INTERVAL steps if that is not set.
+     *
+     * @param args The command line arguments.
+     */
     public static void main(String[] args){
-        Simulator simulator =  new Simulator();
-        simulator.runLongSimulation();
+        if(args.length == 0) {
+            Simulator simulator =  new Simulator();
+            simulator.runLongSimulation();
+            return;
+        }
+        if(args.length < 3) {
+            System.out.println("Usage: java Simulator depth width steps [seed [threads [species.properties]]]");
+            System.out.println("       java Simulator -restore checkpoint steps [threads [species.properties]]");
+            return;
+        }
+        boolean restore = args[0].equals("-restore");
+        // A checkpoint holds its seed, so the arguments after the steps
+        // start one place earlier when restoring.
+        int next = restore ? 3 : 4;
+        int steps = Integer.parseInt(args[2]);
+        int threads = args.length > next ? Integer.parseInt(args[next]) : 1;
+        if(args.length > next + 1) {
+            System.setProperty(SpeciesConfig.CONFIG_PROPERTY, args[next + 1]);
+        }
+        Simulator simulator;
+        if(restore) {
+            try {
+                simulator = restore(args[1], threads, true);
+            }
+            catch(IOException e) {
+                System.out.println("Cannot restore the simulation: " + e);
+                return;
+            }
+        }
+        else {
+            if(args.length > 3) {
+                Randomizer.setSeed(Long.parseLong(args[3]));
+            }
+            simulator = new Simulator(Integer.parseInt(args[0]), Integer.parseInt(args[1]), threads, true);
+        }
+        String fileName = System.getProperty(CHECKPOINT_PROPERTY);
+        if(fileName != null) {
+            simulator.setCheckpoints(fileName, Integer.getInteger(CHECKPOINT_INTERVAL_PROPERTY,
+                                                                  DEFAULT_CHECKPOINT_INTERVAL));
+        }
+        simulator.runBatch(steps);
     }
     
     /**
@@ -125,10 +295,109 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        for(int step = 1; step <= numSteps && views.get(0).isViable(field); step++) {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
-            delay(250);//uncomment to make the simulation run faster!
+            if(!headless) {
+                delay(250);//uncomment to make the simulation run faster!
+            }
         }
+        finishCheckpoint();
+    }
+
+    /**
+     * Run the simulation from its current state for the given number of
+     * steps as fast as possible, printing a population summary every
+     * SUMMARY_INTERVAL steps, and the throughput once it finishes. Stop
+     * before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void runBatch(int numSteps)
+    {
+        long entitySteps = 0;
+        int stepsRun = 0;
+        long start = System.nanoTime();
+        while(stepsRun < numSteps && isViable()) {
+            entitySteps += countEntities();
+            simulateOneStep();
+            stepsRun++;
+            if(stepsRun % SUMMARY_INTERVAL == 0) {
+                printSummary();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if(stepsRun % SUMMARY_INTERVAL != 0) {
+            printSummary();
+        }
+        System.out.printf("%d steps in %.2f s: %.1f steps/sec, %.0f entities/sec%n",
+                          stepsRun, seconds, stepsRun / seconds, entitySteps / seconds);
+        long births = kernel.getBirths();
+        System.out.printf("entity pool: %d of %d births reused the slot of a dead animal (%.1f%%)%n",
+                          kernel.getReusedBirths(), births,
+                          births == 0 ? 0.0 : 100.0 * kernel.getReusedBirths() / births);
+        shutdown();
+    }
+
+    /**
+     * Print the step and the population of each species on one line.
+     */
+    private void printSummary()
+    {
+        System.out.println(getSummary());
+    }
+
+    /**
+     * Return the step and the population of each species on one line,
+     * as printed by runBatch().
+     * @return The summary.
+     */
+    public String getSummary()
+    {
+        field.countSpecies(speciesCounts);
+        StringBuilder line = new StringBuilder("step ").append(step).append(':');
+        for(int id = 1; id < Species.COUNT; id++) {
+            line.append(' ').append(Species.get(id)).append(' ').append(speciesCounts[id]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Stop the threads running the simulation, once it is no longer to be
+     * run.
+     */
+    public void shutdown()
+    {
+        finishCheckpoint();
+        if(checkpointWriter != null) {
+            checkpointWriter.shutdown();
+            checkpointWriter = null;
+        }
+        engine.shutdown();
+    }
+
+    /**
+     * @return The number of animals and plants in the field.
+     */
+    private int countEntities()
+    {
+        field.countSpecies(speciesCounts);
+        int total = 0;
+        for(int id = 1; id < Species.COUNT; id++) {
+            total += speciesCounts[id];
+        }
+        return total;
+    }
+
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    private boolean isViable()
+    {
+        if(views.isEmpty()) {
+            stats.reset();
+            return stats.isViable(field);
+        }
+        return views.get(0).isViable(field);
     }
     
     /**
@@ -141,44 +410,33 @@ public class Simulator
         step++;
         counter++;
         setWeather(counter);
-        // Provide space for newborn animals.
-        List<Animal> newAnimals = new ArrayList<>();
-        // Let all Mouses act.
+        setEnvironment(counter);
 
-        if(counter<=10){
-            timeStatus = "Day"; //setting time status to day
-            for(Iterator<Animal> it = animals.iterator(); it.hasNext(); ) {
-                Animal animal = it.next();
-                animal.act(newAnimals,weather);
-                if(! animal.isAlive()) {
-                    it.remove();
-                }
-            }
+        simulateOneStepOnStore();
+        updateViews();
+        if(checkpointFile != null && step % checkpointInterval == 0) {
+            startCheckpoint();
         }
+    }
 
-         else if(counter>10 && counter<=20){
-
-             timeStatus = "Night";
-            //animal undergo sleep method
-            for(Iterator<Animal> it = animals.iterator(); it.hasNext(); ) {
-                Animal animal = it.next();
-                animal.sleep(newAnimals,weather);
-                if(! animal.isAlive()) {
-                    it.remove();
-                }
-            }
-         }
-         else{
-            //new day
-            //therefore counter gets sets to 0
+    /**
+     * Run a single step of the simulation on the entity store: ten steps
+     * of day, when the animals act, ten of night, when they sleep, and a
+     * step in which the day starts again.
+     */
+    private void simulateOneStepOnStore()
+    {
+        if(counter<=10){
+            engine.act(environment);
+        }
+        else if(counter<=20){
+            engine.sleep(environment);
+        }
+        else{
             counter = 0;
         }
-        // Add the newly born foxes and Mouses to the main lists.
-        animals.addAll(newAnimals);
-        
-
-        updateViews();
-
+        // Drop the entities that died during this step.
+        store.compact();
     }
 
     /**
@@ -187,7 +445,7 @@ public class Simulator
     private void reset()
     {
         step = 0;
-        animals.clear();
+        kernel.clear();
         populate();
         
         // Show the starting state in the view.
@@ -195,51 +453,139 @@ public class Simulator
     }
     
     /**
-     * Randomly populate the field with cats,mice,owls,squirrels and plants
+     * Randomly populate the field with cats,mice,owls,squirrels and plants.
+     * Each cell is given the species SpeciesConfig.chooseSpecies() picks,
+     * which gives each the chance it would have if the species were tried
+     * in the order of the species parameters. The field is filled by the
+     * engine, on every thread it has, and is the same whatever the number
+     * of threads.
      */
     private void populate() {
-        Random rand = Randomizer.getRandom();
-        field.clear();
-        for (int row = 0; row < field.getDepth(); row++) {
-            for (int col = 0; col < field.getWidth(); col++) {
-
-                if (rand.nextDouble() <= MOUSE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Mouse mouse = new Mouse(true, field, location);
-                    animals.add(mouse);
-
-                } else if (rand.nextDouble() <= CAT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Cat cat = new Cat(true, field, location);
-                    animals.add(cat);
-                } else if (rand.nextDouble() <= OWL_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Owl owl = new Owl(true, field, location);
-                    animals.add(owl);
-
-                } else if (rand.nextDouble() <= SQUIRREL_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Squirrel squirrel = new Squirrel(true, field, location);
-                    animals.add(squirrel);
-
-                } else if (rand.nextDouble() <= PLANT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Plant plant = new Plant(true, field, location);
-
-                    animals.add(plant);
-
-                }
-                else if (rand.nextDouble() <= SNAKE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Snake snake = new Snake(true, field, location);
-                    animals.add(snake);
-
-                }
-                // else leave the location empty.
+        engine.populate();
+    }
+
+    /**
+     * Write the state of the simulation to a checkpoint file, from which
+     * restore() can carry it on.
+     * @param fileName The name of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveCheckpoint(String fileName) throws IOException
+    {
+        finishCheckpoint();
+        takeCheckpoint();
+        checkpoint.writeTo(fileName);
+    }
+
+    /**
+     * Write a checkpoint to a file every so many steps while the
+     * simulation runs, each replacing the one before. The state is copied
+     * at the end of the step and written by a thread of its own while the
+     * simulation runs on; the simulation only waits if the last checkpoint
+     * is still being written when the next one is due.
+     * @param fileName The name of the file, or null to stop writing
+     *                 checkpoints.
+     * @param interval The number of steps between checkpoints. Must be
+     *                 greater than zero.
+     */
+    public void setCheckpoints(String fileName, int interval)
+    {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be greater than zero");
+        }
+        checkpointFile = fileName;
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Take a checkpoint and start writing it in the background, once the
+     * one before has been written.
+     */
+    private void startCheckpoint()
+    {
+        finishCheckpoint();
+        takeCheckpoint();
+        if(checkpointWriter == null) {
+            checkpointWriter = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "checkpoint writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Checkpoint image = checkpoint;
+        String fileName = checkpointFile;
+        checkpointWrite = checkpointWriter.submit(() -> {
+            image.writeTo(fileName);
+            return null;
+        });
+    }
+
+    /**
+     * Wait for the checkpoint being written in the background, if there
+     * is one, and say so if it could not be written. The simulation runs
+     * on either way, and the next checkpoint is tried as usual.
+     */
+    private void finishCheckpoint()
+    {
+        boolean interrupted = false;
+        while(checkpointWrite != null) {
+            try {
+                checkpointWrite.get();
+                checkpointWrite = null;
+            }
+            catch(ExecutionException e) {
+                System.out.println("Cannot write the checkpoint: " + e.getCause());
+                checkpointWrite = null;
+            }
+            catch(InterruptedException e) {
+                // The image must not change until it has been written.
+                interrupted = true;
             }
         }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
+    /**
+     * Copy the state of the simulation into the checkpoint image: the
+     * size of the field, the seed, the step, the place in the day and
+     * night cycle and the weather, followed by the field, the entities
+     * and the kernel.
+     */
+    private void takeCheckpoint()
+    {
+        if(checkpoint == null) {
+            checkpoint = new Checkpoint();
+        }
+        else {
+            checkpoint.clear();
+        }
+        checkpoint.putInt(field.getDepth());
+        checkpoint.putInt(field.getWidth());
+        checkpoint.putLong(Randomizer.getSeed());
+        checkpoint.putInt(step);
+        checkpoint.putInt(counter);
+        checkpoint.putInt(weather == null ? 0 : weather.ordinal() + 1);
+        kernel.writeTo(checkpoint);
+    }
+
+    /**
+     * Read the state of the simulation from a checkpoint, from the seed
+     * on, the size of the field having been read already.
+     * @param image The checkpoint.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    private void readFrom(Checkpoint image) throws IOException
+    {
+        Randomizer.setSeed(image.getLong());
+        step = image.getCount(Integer.MAX_VALUE);
+        counter = image.getCount(Integer.MAX_VALUE);
+        int weatherIndex = image.getCount(weatherType.length);
+        weather = weatherIndex == 0 ? null : weatherType[weatherIndex - 1];
+        kernel.readFrom(image);
+        updateViews();
+    }
     
     /**
      * Pause for a given time.
@@ -261,8 +607,8 @@ public class Simulator
      * @param counter
      */
     private void setWeather(int counter){
-            Random rand = new Random();
-            String randWeather = weatherType[rand.nextInt(weatherType.length)]; //change bound to a value of one to make the weather only sunny
+            weatherStream.reset(step, Randomizer.WEATHER_STREAM, 0);
+            Weather randWeather = weatherType[weatherStream.nextInt(weatherType.length)]; //change bound to a value of one to make the weather only sunny
 
             if(counter<=1){
                 weather = randWeather;
@@ -277,6 +623,17 @@ public class Simulator
             }
     }
 
+    /**
+     * Record the conditions of the current step, so that they are worked
+     * out once rather than by every animal.
+     * @param counter The position of the step in the day and night cycle.
+     */
+    private void setEnvironment(int counter)
+    {
+        Environment.Phase phase = counter <= 10 ? Environment.Phase.DAY : Environment.Phase.NIGHT;
+        environment = new Environment(step, phase, weather);
+    }
+
     /**
      * Update all existing views.
      */
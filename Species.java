@@ -0,0 +1,116 @@
+/**
+ * Identifies the kinds of participant in the simulation. Every species has a
+ * small numeric id so that it can be kept in primitive arrays (id 0 is
+ * reserved for an empty cell), a class that names it, such as Cat, and a
+ * shared Species object that stands in for the participant wherever the
+ * field expects an object.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public final class Species
+{
+    // The id of an empty cell.
+    public static final byte EMPTY = 0;
+    // The ids of the species in the simulation.
+    public static final byte PLANT = 1;
+    public static final byte MOUSE = 2;
+    public static final byte CAT = 3;
+    public static final byte OWL = 4;
+    public static final byte SQUIRREL = 5;
+    public static final byte SNAKE = 6;
+    // The number of ids in use, including EMPTY.
+    public static final int COUNT = 7;
+
+    // The species indexed by their id.
+    private static final Species[] table = {
+        null,
+        new Species(PLANT, Plant.class),
+        new Species(MOUSE, Mouse.class),
+        new Species(CAT, Cat.class),
+        new Species(OWL, Owl.class),
+        new Species(SQUIRREL, Squirrel.class),
+        new Species(SNAKE, Snake.class),
+    };
+
+    // The id of this species.
+    private final byte id;
+    // The class naming this species.
+    private final Class<?> animalClass;
+
+    /**
+     * Create a species.
+     * @param id The id of the species.
+     * @param animalClass The class naming the species.
+     */
+    private Species(byte id, Class<?> animalClass)
+    {
+        this.id = id;
+        this.animalClass = animalClass;
+    }
+
+    /**
+     * @return The id of this species.
+     */
+    public byte getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return The class naming this species.
+     */
+    public Class<?> getAnimalClass()
+    {
+        return animalClass;
+    }
+
+    /**
+     * Return a string describing this species.
+     * @return The name of the class naming the species.
+     */
+    public String toString()
+    {
+        return animalClass.getName();
+    }
+
+    /**
+     * Return the species with the given id.
+     * @param id The id of the species.
+     * @return The species, or null for EMPTY.
+     */
+    public static Species get(int id)
+    {
+        return table[id];
+    }
+
+    /**
+     * Return the id of the species named by the given class.
+     * @param animalClass The class naming a species.
+     * @return The species id, or EMPTY if the class is not a known species.
+     */
+    public static byte idOf(Class<?> animalClass)
+    {
+        for(int id = 1; id < COUNT; id++) {
+            if(table[id].animalClass == animalClass) {
+                return (byte) id;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return the class that identifies an occupant of the field, so that
+     * the Species markers the field hands out are reported by the class
+     * naming their species.
+     * @param occupant An object found in the field.
+     * @return The class of the species the occupant belongs to.
+     */
+    public static Class<?> classOf(Object occupant)
+    {
+        if(occupant instanceof Species) {
+            return ((Species) occupant).animalClass;
+        }
+        return occupant.getClass();
+    }
+}
@@ -0,0 +1,486 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The parameters of every species, read from a properties file the first
+ * time the class is used. The parameters are kept in primitive tables
+ * indexed by species id, so the step loops of the SpeciesKernel read them
+ * from a handful of contiguous arrays.
+ *
+ * The defaults are the species.properties that sits on the class path
+ * beside the classes. A parameters file named by the system property
+ * species.config, or species.properties in the working directory if the
+ * property is not set, overrides them key by key, so the simulation runs
+ * from any directory and a file need only give what it changes. Keys
+ * have the form species.parameter, for example cat.maxAge = 140;
+ * parameters that are given nowhere are 0. A parameter that bounds a
+ * random draw, such as maxAge or maxLitterSize, must be above 0, and a
+ * probability must be from 0 to 1; a value out of range stops the load
+ * with an error naming its key.
+ *
+ * What an animal does in a step is given as a list of activities for the
+ * day and for the night, for example cat.night = rest breedNight, and can
+ * be given separately for one kind of weather, as in cat.night.rainy.
+ * The lists are kept as bit masks of the activities below, so the kernel
+ * runs every animal species through the same code.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public final class SpeciesConfig
+{
+    // The system property naming the parameters file.
+    public static final String CONFIG_PROPERTY = "species.config";
+    // The parameters on the class path, and the parameters file used when
+    // the property is not set.
+    private static final String DEFAULT_FILE = "species.properties";
+    // The number of kinds of weather.
+    private static final int WEATHERS = Weather.values().length;
+
+    // The activities of an animal, in the order they are run.
+    // Grow older, and die of old age.
+    static final int AGE = 1;
+    // Grow hungrier, and die of hunger.
+    static final int HUNGER = 1 << 1;
+    // Lose 0 or 1 food at random.
+    static final int RANDOM_HUNGER = 1 << 2;
+    // Breed with the day or the night breeding probability.
+    static final int BREED_DAY = 1 << 3;
+    static final int BREED_NIGHT = 1 << 4;
+    // Eat adjacent prey or move to a free cell, or die of overcrowding.
+    static final int FORAGE = 1 << 5;
+    // The activities that look at the neighbourhood.
+    static final int SCAN = BREED_DAY | BREED_NIGHT | FORAGE;
+
+    // The probability that the species is placed in a cell when the field
+    // is populated.
+    static final double[] creationProbability = new double[Species.COUNT];
+    // The age at which the species can start to breed.
+    static final int[] breedingAge = new int[Species.COUNT];
+    // The age to which the species can live.
+    static final int[] maxAge = new int[Species.COUNT];
+    // The likelihood of the species breeding during the day and at night.
+    static final double[] dayBreedingProbability = new double[Species.COUNT];
+    static final double[] nightBreedingProbability = new double[Species.COUNT];
+    // The maximum number of births.
+    static final int[] maxLitterSize = new int[Species.COUNT];
+    // The food level of a newborn, which also bounds the random food level
+    // of an animal placed when the field is populated.
+    static final int[] foodLevel = new int[Species.COUNT];
+    // The food level a female needs to breed.
+    static final int[] breedingFoodLevel = new int[Species.COUNT];
+    // The food level a predator gains from a prey, indexed by
+    // predator id * Species.COUNT + prey id; 0 if it does not eat it.
+    static final int[] preyFoodValue = new int[Species.COUNT * Species.COUNT];
+
+    // The parameters of plants.
+    // The most cells a plant spreads into when it grows.
+    static final int[] maxGrowth = new int[Species.COUNT];
+    // The most seeds a plant scatters at once.
+    static final int[] maxSeeds = new int[Species.COUNT];
+    // The likelihood of a plant growing during the day and at night.
+    static final double[] dayGrowingProbability = new double[Species.COUNT];
+    static final double[] nightGrowingProbability = new double[Species.COUNT];
+    // The likelihood of a plant scattering seeds when it rains and when
+    // it is windy.
+    static final double[] rainDispersalProbability = new double[Species.COUNT];
+    static final double[] windDispersalProbability = new double[Species.COUNT];
+    // The likelihood of a scattered seed being lost.
+    static final double[] seedGrowingProbability = new double[Species.COUNT];
+    // The highest water level a new plant can start with.
+    static final int[] maxInitialWater = new int[Species.COUNT];
+    // The bound of the age of each plant when the field is populated.
+    static final int[] maxInitialAge = new int[Species.COUNT];
+
+    // Whether a female only breeds with a mate next to her.
+    static final boolean[] needsMate = new boolean[Species.COUNT];
+    // The activities of each species, indexed by activityRow(phase,
+    // weather) + species id.
+    static final int[] activity = new int[2 * WEATHERS * Species.COUNT];
+    // The species that do anything at all in each phase and weather, one
+    // bit per species id, indexed by activityRow(phase, weather) /
+    // Species.COUNT.
+    private static final int[] activeSpecies = new int[2 * WEATHERS];
+
+    // The order in which the species are tried when the field is populated.
+    static byte[] creationOrder = new byte[0];
+    // The chance that a cell of a new field is taken by each species of
+    // creationOrder or one before it.
+    private static double[] creationChance = new double[0];
+
+    static {
+        load(readParameters());
+        findActiveSpecies();
+        findCreationChances();
+    }
+
+    /**
+     * The parameters are only used through the static tables.
+     */
+    private SpeciesConfig()
+    {
+    }
+
+    /**
+     * Return where the activities of the species for the given conditions
+     * start in the activity table.
+     * @param phase Whether it is day or night.
+     * @param weather The weather.
+     * @return The index of the activities of species 0.
+     */
+    static int activityRow(Environment.Phase phase, Weather weather)
+    {
+        return (phase.ordinal() * WEATHERS + weather.ordinal()) * Species.COUNT;
+    }
+
+    /**
+     * Return the species that do anything at all in the given conditions.
+     * An animal of any other species can be skipped for the whole step.
+     * @param phase Whether it is day or night.
+     * @param weather The weather.
+     * @return The active species, one bit per species id.
+     */
+    static int activeSpecies(Environment.Phase phase, Weather weather)
+    {
+        return activeSpecies[activityRow(phase, weather) / Species.COUNT];
+    }
+
+    /**
+     * Choose the occupant of a cell of a new field. Each species takes the
+     * cell with the chance it would have if the species were tried in
+     * creationOrder, each with its creation probability, but only one
+     * random number is needed.
+     * @param chance A random number from 0 up to 1.
+     * @return The species chosen, or EMPTY if the cell is left empty.
+     */
+    static byte chooseSpecies(double chance)
+    {
+        for(int n = 0; n < creationOrder.length; n++) {
+            if(chance < creationChance[n]) {
+                return creationOrder[n];
+            }
+        }
+        return Species.EMPTY;
+    }
+
+    /**
+     * Work out the running totals of the chances of the species being
+     * chosen by chooseSpecies().
+     */
+    private static void findCreationChances()
+    {
+        creationChance = new double[creationOrder.length];
+        double total = 0;
+        double untaken = 1;
+        for(int n = 0; n < creationOrder.length; n++) {
+            double probability = creationProbability[creationOrder[n]];
+            total += untaken * probability;
+            untaken *= 1 - probability;
+            creationChance[n] = total;
+        }
+    }
+
+    /**
+     * Work out the active species of every phase and weather from the
+     * activity table. Plants always have something to do.
+     */
+    private static void findActiveSpecies()
+    {
+        for(int conditions = 0; conditions < activeSpecies.length; conditions++) {
+            int active = 1 << Species.PLANT;
+            for(int species = 1; species < Species.COUNT; species++) {
+                if(activity[conditions * Species.COUNT + species] != 0) {
+                    active |= 1 << species;
+                }
+            }
+            activeSpecies[conditions] = active;
+        }
+    }
+
+    /**
+     * Read the default parameters from the class path, and those of the
+     * parameters file over them.
+     * @return The parameters, with the defaults behind them.
+     */
+    private static Properties readParameters()
+    {
+        Properties defaults = new Properties();
+        boolean found = false;
+        try(InputStream in = SpeciesConfig.class.getResourceAsStream("/" + DEFAULT_FILE)) {
+            if(in != null) {
+                defaults.load(in);
+                found = true;
+            }
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Cannot read the default species parameters", e);
+        }
+        Properties properties = new Properties(defaults);
+        String fileName = System.getProperty(CONFIG_PROPERTY);
+        File file = new File(fileName != null ? fileName : DEFAULT_FILE);
+        // A file named by the property must be there; the default one
+        // need not be.
+        if(fileName != null || file.isFile()) {
+            try(InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+                found = true;
+            }
+            catch(IOException e) {
+                throw new IllegalStateException("Cannot read the species parameters from " + file, e);
+            }
+        }
+        if(!found) {
+            throw new IllegalStateException("Cannot find " + DEFAULT_FILE
+                                            + " on the class path or in the working directory");
+        }
+        return properties;
+    }
+
+    /**
+     * Read the parameters into the tables.
+     * @param properties The parameters.
+     */
+    private static void load(Properties properties)
+    {
+        // Sorted, so that the activities of a phase are read before those
+        // of the phase in one kind of weather.
+        for(String key : new TreeSet<>(properties.stringPropertyNames())) {
+            String value = properties.getProperty(key).trim();
+            int dot = key.indexOf('.');
+            if(dot < 0) {
+                throw new IllegalArgumentException("Unknown species parameter: " + key);
+            }
+            String owner = key.substring(0, dot);
+            String parameter = key.substring(dot + 1);
+            try {
+                if(owner.equals("simulation")) {
+                    setSimulation(key, parameter, value);
+                }
+                else {
+                    set(key, speciesNamed(owner), parameter, value);
+                }
+            }
+            catch(NumberFormatException e) {
+                throw new IllegalArgumentException("Bad value for " + key + ": " + value, e);
+            }
+        }
+    }
+
+    /**
+     * Set a parameter of the whole simulation.
+     */
+    private static void setSimulation(String key, String parameter, String value)
+    {
+        if(parameter.equals("creationOrder")) {
+            String[] names = value.split(",");
+            creationOrder = new byte[names.length];
+            for(int n = 0; n < names.length; n++) {
+                creationOrder[n] = speciesNamed(names[n].trim());
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Unknown species parameter: " + key);
+        }
+    }
+
+    /**
+     * Set a parameter of one species.
+     */
+    private static void set(String key, byte species, String parameter, String value)
+    {
+        String[] parts = parameter.split("\\.");
+        if(parts[0].equals("day") || parts[0].equals("night")) {
+            setActivity(key, species, parts, value);
+            return;
+        }
+        switch(parameter) {
+            case "creationProbability":
+                creationProbability[species] = probability(key, value);
+                break;
+            case "breedingAge":
+                breedingAge[species] = Integer.parseInt(value);
+                break;
+            case "maxAge":
+                maxAge[species] = positive(key, value);
+                break;
+            case "dayBreedingProbability":
+                dayBreedingProbability[species] = probability(key, value);
+                break;
+            case "nightBreedingProbability":
+                nightBreedingProbability[species] = probability(key, value);
+                break;
+            case "maxLitterSize":
+                maxLitterSize[species] = positive(key, value);
+                break;
+            case "foodLevel":
+                foodLevel[species] = positive(key, value);
+                break;
+            case "breedingFoodLevel":
+                breedingFoodLevel[species] = Integer.parseInt(value);
+                break;
+            case "eats":
+                setPrey(species, value);
+                break;
+            case "needsMate":
+                needsMate[species] = Boolean.parseBoolean(value);
+                break;
+            case "maxGrowth":
+                maxGrowth[species] = positive(key, value);
+                break;
+            case "maxSeeds":
+                maxSeeds[species] = positive(key, value);
+                break;
+            case "dayGrowingProbability":
+                dayGrowingProbability[species] = probability(key, value);
+                break;
+            case "nightGrowingProbability":
+                nightGrowingProbability[species] = probability(key, value);
+                break;
+            case "rainDispersalProbability":
+                rainDispersalProbability[species] = probability(key, value);
+                break;
+            case "windDispersalProbability":
+                windDispersalProbability[species] = probability(key, value);
+                break;
+            case "seedGrowingProbability":
+                seedGrowingProbability[species] = probability(key, value);
+                break;
+            case "maxInitialWater":
+                maxInitialWater[species] = positive(key, value);
+                break;
+            case "maxInitialAge":
+                maxInitialAge[species] = positive(key, value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown species parameter: " + key);
+        }
+    }
+
+    /**
+     * Read a parameter that bounds a random draw, which must be above 0.
+     * @param key The key of the parameter.
+     * @param value The value of the parameter.
+     * @return The value.
+     */
+    private static int positive(String key, String value)
+    {
+        int bound = Integer.parseInt(value);
+        if(bound <= 0) {
+            throw new IllegalArgumentException("Bad value for " + key + ": " + value
+                                               + " (must be above 0)");
+        }
+        return bound;
+    }
+
+    /**
+     * Read a parameter that is a probability, which must be from 0 to 1.
+     * @param key The key of the parameter.
+     * @param value The value of the parameter.
+     * @return The value.
+     */
+    private static double probability(String key, String value)
+    {
+        double probability = Double.parseDouble(value);
+        if(!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("Bad value for " + key + ": " + value
+                                               + " (must be from 0 to 1)");
+        }
+        return probability;
+    }
+
+    /**
+     * Record the activities of a species by day or by night, in every kind
+     * of weather or in one.
+     * @param key The key of the parameter.
+     * @param species The species.
+     * @param parts The phase, optionally followed by the weather.
+     * @param value The activities, separated by spaces or commas.
+     */
+    private static void setActivity(String key, byte species, String[] parts, String value)
+    {
+        if(parts.length > 2) {
+            throw new IllegalArgumentException("Unknown species parameter: " + key);
+        }
+        Environment.Phase phase = Environment.Phase.valueOf(parts[0].toUpperCase());
+        int activities = 0;
+        for(String name : value.split("[\\s,]+")) {
+            if(!name.isEmpty()) {
+                activities |= activityNamed(name);
+            }
+        }
+        boolean known = parts.length == 1;
+        for(Weather weather : Weather.values()) {
+            if(parts.length == 1 || weather.name().equalsIgnoreCase(parts[1])) {
+                activity[activityRow(phase, weather) + species] = activities;
+                known = true;
+            }
+        }
+        if(!known) {
+            throw new IllegalArgumentException("Unknown weather: " + parts[1]);
+        }
+    }
+
+    /**
+     * @param name The name of an activity.
+     * @return The bit of the activity, or 0 for one with nothing to do.
+     */
+    private static int activityNamed(String name)
+    {
+        switch(name) {
+            case "age":
+                return AGE;
+            case "hunger":
+                return HUNGER;
+            case "randomHunger":
+                return RANDOM_HUNGER;
+            case "rest":
+                // Resting keeps the food level, and needs nothing done.
+                return 0;
+            case "breedDay":
+                return BREED_DAY;
+            case "breedNight":
+                return BREED_NIGHT;
+            case "forage":
+                return FORAGE;
+            default:
+                throw new IllegalArgumentException("Unknown activity: " + name);
+        }
+    }
+
+    /**
+     * Record the prey of a predator from a list such as "mouse:10, squirrel:4".
+     * @param predator The species that eats.
+     * @param value The list of prey and the food level gained from each.
+     */
+    private static void setPrey(byte predator, String value)
+    {
+        for(String entry : value.split(",")) {
+            int colon = entry.indexOf(':');
+            if(colon < 0) {
+                throw new IllegalArgumentException("Bad prey entry: " + entry.trim());
+            }
+            byte prey = speciesNamed(entry.substring(0, colon).trim());
+            preyFoodValue[predator * Species.COUNT + prey] = Integer.parseInt(entry.substring(colon + 1).trim());
+        }
+    }
+
+    /**
+     * Return the species with the given name, which is the name of its
+     * class in lower case.
+     * @param name The name of the species.
+     * @return The id of the species.
+     */
+    private static byte speciesNamed(String name)
+    {
+        for(int id = 1; id < Species.COUNT; id++) {
+            if(Species.get(id).toString().toLowerCase().equals(name)) {
+                return (byte) id;
+            }
+        }
+        throw new IllegalArgumentException("Unknown species: " + name);
+    }
+}
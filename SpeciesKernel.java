@@ -0,0 +1,889 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Runs the behaviour of every species on the entities of an EntityStore.
+ * The rules work directly on the primitive state held by the store, so
+ * that no object is needed per animal, and the Cat, Mouse, Owl, Snake,
+ * Squirrel and Plant classes only name the species. Every animal
+ * species is run by the same code, from its row of the SpeciesConfig
+ * tables: what it does in the current phase and weather, when it can
+ * breed, what it eats, and so on.
+ *
+ * Animals do not age or grow hungrier one by one. At the start of a step
+ * the age and hunger clocks of the store are moved on for the species that
+ * age or grow hungrier in it, and the deaths from old age and starvation
+ * due at the new ticks are taken in bulk from a timing wheel per species
+ * and clock. An animal has a timer in each wheel, set again whenever its
+ * food level changes, and cancelled when it dies of something else.
+ *
+ * Plants are not entities. They are a dense layer of the field, and are
+ * run after the animals by a sweep over the plant bit plane, row by row,
+ * which reads and writes their water levels and ages in place. Every
+ * plant alive at the start of the step is run once; plants that grow or
+ * are seeded during the step wait for the next one.
+ *
+ * Steps are run by a ParallelEngine, on one thread or on several. It
+ * cuts the field into bands, runs each band with a kernel of its own, and
+ * joins them into a shared kernel in order, so a run takes the same path
+ * and gives the same result whatever the number of threads.
+ *
+ * The store keeps the species and entity planes of the field up to date,
+ * so the views display the field from its species plane.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class SpeciesKernel
+{
+    // The random numbers controlling breeding and movement. The stream is
+    // keyed afresh for every entity, so the numbers an entity draws depend
+    // only on the step and its cell, not on the entities run before it.
+    private final Randomizer.Stream rand;
+    // The random numbers choosing the occupants of the cells of a row
+    // when the field is populated, keyed afresh for every row.
+    private final Randomizer.Stream choices;
+    // The number of steps run so far.
+    private long step;
+
+    // The field the entities live in.
+    private Field field;
+    // The state of the entities.
+    private EntityStore store;
+    // The width of the field.
+    private int width;
+    // The depth of the field.
+    private int depth;
+
+    // The next free slot of the block of store slots the band is putting
+    // births into, and the end of the block.
+    private int nextSlot, slotLimit;
+    // The slots of the births the band has put into blocks, in the order
+    // they were born, and how many there are.
+    private int[] blockBirths = new int[64];
+    private int blockBirthCount;
+    // The slots of the animals of each species that died of old age or
+    // starvation at the start of the step in the rows of the band, and
+    // how many are left. Births of a species take these before the block.
+    private final int[][] freeSlots = new int[Species.COUNT][16];
+    private final int[] freeSlotCount = new int[Species.COUNT];
+    // The number of animals born, and how many of them were born into the
+    // slot of a dead animal, since the kernel was created or cleared.
+    private long births;
+    private long reusedBirths;
+    // The cells of the plants that scattered seeds during the band, one
+    // entry per seed.
+    private long[] seeds = new long[16];
+    private int seedCount;
+    // The number of words covering one row of a bit plane of the field.
+    private int wordsPerRow;
+
+    // The timers of deaths from old age and from starvation, a wheel per
+    // species driven by the age and hunger clocks of the store.
+    private final TimingWheel[] oldAge = new TimingWheel[Species.COUNT];
+    private final TimingWheel[] starvation = new TimingWheel[Species.COUNT];
+    // The timer of each entity in each wheel, by entity id, or -1.
+    private int[] oldAgeTimer = new int[0];
+    private int[] starvationTimer = new int[0];
+    // The entities born, fed or killed since their timers were last set.
+    private int[] changed = new int[64];
+    private int changedCount;
+
+    // Whether the current step is in the day.
+    private boolean day;
+    // The weather for the current step.
+    private boolean sunny, windy, rainy;
+    // Where the activities for the current step start in
+    // SpeciesConfig.activity.
+    private int activityRow;
+    // The species that do anything in the current step, one bit per id.
+    private int activeSpecies;
+
+    // A cursor over the cells adjacent to an entity.
+    private final NeighbourCursor adjacent = new NeighbourCursor();
+    // The neighbourhood of the animal being run.
+    private final Neighbourhood neighbourhood = new Neighbourhood();
+
+    /**
+     * Create a kernel for the entities of a field.
+     * @param field The field the entities live in.
+     * @param store The state of the entities.
+     */
+    public SpeciesKernel(Field field, EntityStore store)
+    {
+        this.field = field;
+        rand = new Randomizer.Stream();
+        choices = new Randomizer.Stream();
+        this.store = store;
+        width = field.getWidth();
+        depth = field.getDepth();
+        wordsPerRow = field.getWordsPerRow();
+        for(byte species = Species.PLANT + 1; species < Species.COUNT; species++) {
+            oldAge[species] = new TimingWheel();
+            starvation[species] = new TimingWheel();
+        }
+    }
+
+    /**
+     * Return the number of animals populateRow() will put in a row. The
+     * occupants of the row are chosen here and chosen again when it is
+     * filled, which costs one random number per cell rather than the
+     * memory to keep them.
+     * @param row The row.
+     * @return The number of animals.
+     */
+    int countAnimals(int row)
+    {
+        choices.reset(0, Randomizer.POPULATE_STREAM, row);
+        int count = 0;
+        for(int col = 0; col < width; col++) {
+            byte species = SpeciesConfig.chooseSpecies(choices.nextDouble());
+            if(species != Species.EMPTY && species != Species.PLANT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fill a row of the empty field at random. Each animal is given a
+     * random age and food level, and is put into the next of a block of
+     * store slots reserved for the row.
+     * Several rows can be filled at once on different threads while the
+     * field is concurrent, each with a kernel and a block of its own.
+     * @param row The row.
+     * @param firstSlot The first of countAnimals(row) reserved slots.
+     */
+    void populateRow(int row, int firstSlot)
+    {
+        choices.reset(0, Randomizer.POPULATE_STREAM, row);
+        int slot = firstSlot;
+        for(int col = 0; col < width; col++) {
+            byte species = SpeciesConfig.chooseSpecies(choices.nextDouble());
+            if(species == Species.EMPTY) {
+                continue;
+            }
+            long where = field.cellOf(row, col);
+            rand.reset(0, Randomizer.ENTITY_STREAM, where);
+            if(species == Species.PLANT) {
+                int water = rand.nextInt(SpeciesConfig.maxInitialWater[species]) + 1;
+                field.placePlant(where, water, rand.nextInt(SpeciesConfig.maxInitialAge[species]));
+            }
+            else {
+                char gender = randomGender();
+                store.set(slot++, species, rand.nextInt(SpeciesConfig.maxAge[species]),
+                          rand.nextInt(SpeciesConfig.foodLevel[species]), gender, where);
+            }
+        }
+    }
+
+    /**
+     * Finish populating the field once every row has been filled: note
+     * every animal so that its timers are set at the start of the first
+     * step.
+     */
+    void finishPopulation()
+    {
+        for(int index = 0; index < store.size(); index++) {
+            changed(index);
+        }
+    }
+
+    /**
+     * Let the listed entities act for one step of the day.
+     * @param environment The conditions of the current step.
+     * @param entities The entities to run.
+     * @param from The position of the first entity in the list.
+     * @param to The position after the last entity in the list.
+     */
+    void act(Environment environment, int[] entities, int from, int to)
+    {
+        setConditions(Environment.Phase.DAY, environment.getWeather());
+        for(int n = from; n < to; n++) {
+            runEntity(entities[n]);
+        }
+    }
+
+    /**
+     * Let the listed entities sleep for one step of the night.
+     * @param environment The conditions of the current step.
+     * @param entities The entities to run.
+     * @param from The position of the first entity in the list.
+     * @param to The position after the last entity in the list.
+     */
+    void sleep(Environment environment, int[] entities, int from, int to)
+    {
+        setConditions(Environment.Phase.NIGHT, environment.getWeather());
+        for(int n = from; n < to; n++) {
+            runEntity(entities[n]);
+        }
+    }
+
+    /**
+     * Remove every entity, both from the store and from the field.
+     */
+    public void clear()
+    {
+        store.clear();
+        field.clear();
+        step = 0;
+        for(byte species = Species.PLANT + 1; species < Species.COUNT; species++) {
+            oldAge[species].clear();
+            starvation[species].clear();
+        }
+        Arrays.fill(oldAgeTimer, -1);
+        Arrays.fill(starvationTimer, -1);
+        changedCount = 0;
+        births = 0;
+        reusedBirths = 0;
+    }
+
+    /**
+     * Add the field, the store and the kernel to a checkpoint. This must
+     * be done between steps, once the store has been compacted.
+     * @param image The checkpoint being built.
+     */
+    void writeTo(Checkpoint image)
+    {
+        field.writeTo(image);
+        store.writeTo(image);
+        image.putLong(step);
+    }
+
+    /**
+     * Replace the field, the store and the kernel with those read from a
+     * checkpoint written by writeTo(). The timers are not kept in the
+     * checkpoint. The wheels are set to the clocks of the store, and every
+     * animal is noted so that its timers are set at the start of the next
+     * step, from the same state as they were set from when it was written.
+     * @param image The checkpoint being read.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    void readFrom(Checkpoint image) throws IOException
+    {
+        clear();
+        field.readFrom(image);
+        store.readFrom(image);
+        step = image.getLong();
+        for(byte species = Species.PLANT + 1; species < Species.COUNT; species++) {
+            oldAge[species].clear(store.getAgeClock(species));
+            starvation[species].clear(store.getHungerClock(species));
+        }
+        for(int index = 0; index < store.size(); index++) {
+            changed(index);
+        }
+    }
+
+    /**
+     * Move on to the next step.
+     * @return The number of the new step.
+     */
+    long nextStep()
+    {
+        return ++step;
+    }
+
+    /**
+     * Get the animals ready to run in the current step. The clocks of the
+     * species that age or grow hungrier in the step are moved on, and the
+     * animals that die of old age or starvation at the new ticks are
+     * killed, before any animal runs.
+     * @param phase The phase of the step.
+     * @param weather The weather for the step.
+     */
+    void startAnimals(Environment.Phase phase, Weather weather)
+    {
+        setConditions(phase, weather);
+        setTimers(changed, changedCount);
+        changedCount = 0;
+        for(byte species = Species.PLANT + 1; species < Species.COUNT; species++) {
+            int activity = SpeciesConfig.activity[activityRow + species];
+            if((activity & SpeciesConfig.AGE) != 0) {
+                store.tickAge(species);
+                expire(oldAge[species], oldAgeTimer);
+            }
+            if((activity & SpeciesConfig.HUNGER) != 0) {
+                store.tickHunger(species);
+                expire(starvation[species], starvationTimer);
+            }
+        }
+        setTimers(changed, changedCount);
+        changedCount = 0;
+    }
+
+    /**
+     * Move a wheel on by one tick, and kill the animals whose timers
+     * expire.
+     * @param wheel The wheel.
+     * @param timers The timer of each entity in the wheel, by entity id.
+     */
+    private void expire(TimingWheel wheel, int[] timers)
+    {
+        int count = wheel.advance();
+        for(int n = 0; n < count; n++) {
+            int id = wheel.getExpired(n);
+            timers[id] = -1;
+            kill(store.indexOf(id));
+        }
+    }
+
+    /**
+     * Set the timers of the listed entities again: those of a live entity
+     * from its birth and food level, while those of a dead one are
+     * cancelled. This must be done before the store is compacted.
+     * @param entities The entities.
+     * @param count The number of entities in the list.
+     */
+    private void setTimers(int[] entities, int count)
+    {
+        for(int n = 0; n < count; n++) {
+            int index = entities[n];
+            if(store.isAlive(index)) {
+                int id = store.getId(index);
+                if(id >= oldAgeTimer.length) {
+                    int capacity = Math.max(64, id * 2);
+                    int old = oldAgeTimer.length;
+                    oldAgeTimer = Arrays.copyOf(oldAgeTimer, capacity);
+                    starvationTimer = Arrays.copyOf(starvationTimer, capacity);
+                    Arrays.fill(oldAgeTimer, old, capacity, -1);
+                    Arrays.fill(starvationTimer, old, capacity, -1);
+                }
+                byte species = store.getSpecies(index);
+                cancelTimers(species, id);
+                oldAgeTimer[id] = oldAge[species].schedule(
+                    id, store.getOldAgeTick(index, SpeciesConfig.maxAge[species]));
+                starvationTimer[id] = starvation[species].schedule(
+                    id, store.getStarvationTick(index));
+            }
+            else if(store.hasId(index)) {
+                cancelTimers(store.getSpecies(index), store.getId(index));
+            }
+        }
+    }
+
+    /**
+     * Cancel the timers an entity has.
+     * @param species The species of the entity.
+     * @param id The id of the entity.
+     */
+    private void cancelTimers(byte species, int id)
+    {
+        if(oldAgeTimer[id] >= 0) {
+            oldAge[species].cancel(oldAgeTimer[id]);
+            oldAgeTimer[id] = -1;
+        }
+        if(starvationTimer[id] >= 0) {
+            starvation[species].cancel(starvationTimer[id]);
+            starvationTimer[id] = -1;
+        }
+    }
+
+    /**
+     * Get the plants ready to run in the current step: mark the cell of
+     * every plant now in the field, and water them all at once if it is
+     * raining.
+     * @param weather The weather for the step.
+     */
+    void startPlants(Weather weather)
+    {
+        field.markSpecies(Species.PLANT);
+        if(weather == Weather.RAINY) {
+            field.waterPlants(1);
+        }
+    }
+
+    /**
+     * Run the plants of the given rows that were marked by startPlants
+     * and are still in the field. The marks are read a word at a time,
+     * skipping the empty regions of each row, and each one is cleared
+     * once its plant has run.
+     * @param fromRow The first row.
+     * @param toRow The row after the last.
+     */
+    void runPlants(int fromRow, int toRow)
+    {
+        for(int row = fromRow; row < toRow; row++) {
+            for(int word = field.nextChunk(row, 0); word < wordsPerRow; word = field.nextChunk(row, word + 1)) {
+                long bits;
+                while((bits = field.getMarked(row, word)) != 0) {
+                    int col = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    long where = field.cellOf(row, col);
+                    field.unmark(where);
+                    if(field.getSpeciesAt(where) == Species.PLANT) {
+                        rand.reset(step, Randomizer.ENTITY_STREAM, where);
+                        runPlant(where);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepare the kernel to run one band of a ParallelEngine. Births are
+     * put into blocks of store slots the band takes as it needs them, and
+     * seeds are held back until the band is joined, since they may land
+     * anywhere in the field.
+     * @param shared The kernel holding the state shared by all bands.
+     * @param bandStep The step being run.
+     */
+    void startBand(SpeciesKernel shared, long bandStep)
+    {
+        step = bandStep;
+        nextSlot = 0;
+        slotLimit = 0;
+        blockBirthCount = 0;
+        seedCount = 0;
+        changedCount = 0;
+    }
+
+    /**
+     * Take over the outcome of a band run by another kernel: the seeds it
+     * scattered, the timers of the animals it changed, and its births.
+     * Bands must be joined in order for the result to be repeatable, as
+     * the store keeps the births put into blocks in the order they are
+     * joined.
+     * @param band The kernel that ran the band.
+     */
+    void joinBand(SpeciesKernel band)
+    {
+        births += band.births;
+        reusedBirths += band.reusedBirths;
+        band.births = 0;
+        band.reusedBirths = 0;
+        for(int n = 0; n < band.seedCount; n++) {
+            if(n == 0 || band.seeds[n] != band.seeds[n - 1]) {
+                rand.reset(step, Randomizer.SEED_STREAM, band.seeds[n]);
+            }
+            plantSeed();
+        }
+        store.addBirths(band.blockBirths, band.blockBirthCount);
+        band.blockBirthCount = 0;
+        setTimers(band.changed, band.changedCount);
+        band.changedCount = 0;
+    }
+
+    /**
+     * Forget the slots of dead animals given to the kernel for an earlier
+     * band.
+     */
+    void clearFreeSlots()
+    {
+        Arrays.fill(freeSlotCount, 0);
+    }
+
+    /**
+     * Give the kernel the slot of an animal that died before the band
+     * started, for a birth of the same species to take. The slot must not
+     * be run by any band in the step.
+     * @param index The dead animal.
+     */
+    void addFreeSlot(int index)
+    {
+        byte species = store.getSpecies(index);
+        if(freeSlotCount[species] == freeSlots[species].length) {
+            freeSlots[species] = Arrays.copyOf(freeSlots[species], freeSlotCount[species] * 2);
+        }
+        freeSlots[species][freeSlotCount[species]++] = index;
+    }
+
+    /**
+     * @return The number of animals born since the kernel was created or
+     *         cleared.
+     */
+    public long getBirths()
+    {
+        return births;
+    }
+
+    /**
+     * @return The number of animals born into the slot of a dead animal
+     *         of their species since the kernel was created or cleared.
+     */
+    public long getReusedBirths()
+    {
+        return reusedBirths;
+    }
+
+    /**
+     * Run an entity for the current step, if it is alive and its species
+     * does anything in the current phase and weather.
+     * @param index The entity.
+     */
+    private void runEntity(int index)
+    {
+        byte species = store.getSpecies(index);
+        if((activeSpecies & (1 << species)) != 0 && store.isAlive(index)) {
+            rand.reset(step, Randomizer.ENTITY_STREAM, store.getCell(index));
+            runAnimal(index, species, SpeciesConfig.activity[activityRow + species]);
+        }
+    }
+
+    /**
+     * Run the activities of an animal for the current step, in their
+     * fixed order. Ageing and hunger have already been dealt with for the
+     * whole species by startAnimals.
+     * @param index The animal.
+     * @param species The species of the animal.
+     * @param activity The activities, as SpeciesConfig bits.
+     */
+    private void runAnimal(int index, byte species, int activity)
+    {
+        if((activity & SpeciesConfig.RANDOM_HUNGER) != 0) {
+            randomHunger(index);
+        }
+        if((activity & SpeciesConfig.SCAN) == 0 || !store.isAlive(index)) {
+            return;
+        }
+        scanNeighbourhood(index);
+        if((activity & (SpeciesConfig.BREED_DAY | SpeciesConfig.BREED_NIGHT)) != 0
+           && (!SpeciesConfig.needsMate[species] || neighbourhood.hasMate())) {
+            if((activity & SpeciesConfig.BREED_DAY) != 0) {
+                giveBirth(index, SpeciesConfig.dayBreedingProbability);
+            }
+            else {
+                giveBirth(index, SpeciesConfig.nightBreedingProbability);
+            }
+        }
+        if((activity & SpeciesConfig.FORAGE) != 0) {
+            forage(index);
+        }
+    }
+
+    /**
+     * Run a plant. Plants grow when it is dry, spread their seeds when it
+     * is windy or rainy, and dry out in the sun; startPlants has already
+     * watered them if it rains. By day a plant in the sun can die of
+     * thirst, and by night plants carry on growing.
+     * @param where The cell of the plant.
+     */
+    private void runPlant(long where)
+    {
+        if(!incrementAge(where)) {
+            return;
+        }
+        if(day) {
+            if(sunny) {
+                // A plant in the sun loses 0 or 1 water in a step.
+                int water = field.getWater(where) - rand.nextInt(2);
+                field.setWater(where, water);
+                if(water < 0) {
+                    field.clear(where);
+                }
+                else {
+                    grow(where, SpeciesConfig.dayGrowingProbability[Species.PLANT]);
+                }
+            }
+            else if(windy) {
+                grow(where, SpeciesConfig.dayGrowingProbability[Species.PLANT]);
+                seedDispersal(where, SpeciesConfig.windDispersalProbability[Species.PLANT]);
+            }
+            else {
+                seedDispersal(where, SpeciesConfig.rainDispersalProbability[Species.PLANT]);
+            }
+        }
+        else {
+            if(rainy) {
+                seedDispersal(where, SpeciesConfig.rainDispersalProbability[Species.PLANT]);
+            }
+            else if(windy) {
+                grow(where, SpeciesConfig.nightGrowingProbability[Species.PLANT]);
+                seedDispersal(where, SpeciesConfig.windDispersalProbability[Species.PLANT]);
+            }
+            else {
+                grow(where, SpeciesConfig.nightGrowingProbability[Species.PLANT]);
+            }
+        }
+    }
+
+    /**
+     * Increase the age of a plant. This could result in its death.
+     * @param where The cell of the plant.
+     * @return true if the plant is still alive.
+     */
+    private boolean incrementAge(long where)
+    {
+        int age = field.getAge(where) + 1;
+        if(age > SpeciesConfig.maxAge[Species.PLANT]) {
+            field.clear(where);
+            return false;
+        }
+        field.setAge(where, age);
+        return true;
+    }
+
+    /**
+     * Change the food level of a resting animal by a random amount: it
+     * loses 0 or 1, somewhere between resting, which keeps the food level,
+     * and hunger, which always loses 1. A draw over every int would make
+     * the animal either starve or never be hungry again.
+     * @param index The animal.
+     */
+    private void randomHunger(int index)
+    {
+        store.setFoodLevel(index, store.getFoodLevel(index) - rand.nextInt(2));
+        changed(index);
+    }
+
+    /**
+     * Move an animal towards a source of food if one is adjacent, or else
+     * to a free adjacent cell. An animal that cannot move dies of
+     * overcrowding. The neighbourhood of the animal must have been scanned.
+     * @param index The animal.
+     */
+    private void forage(int index)
+    {
+        long where = findFood(index);
+        if(where < 0 && neighbourhood.takeFree()) {
+            where = neighbourhood.getCell();
+        }
+        if(where >= 0) {
+            move(index, where);
+        }
+        else {
+            kill(index);
+        }
+    }
+
+    /**
+     * Eat the first prey adjacent to an animal, if there is any.
+     * @param index The animal.
+     * @return The cell where food was found, or -1 if it wasn't.
+     */
+    private long findFood(int index)
+    {
+        if(neighbourhood.getPreyCount() > 0) {
+            long where = neighbourhood.getPreyCell(0);
+            byte prey = field.getSpeciesAt(where);
+            store.setFoodLevel(index, FoodWeb.foodValue(store.getSpecies(index), prey));
+            changed(index);
+            if(prey == Species.PLANT) {
+                field.clear(where);
+            }
+            else {
+                kill(field.getEntityAt(where));
+            }
+            return where;
+        }
+        return -1;
+    }
+
+    /**
+     * Sort the cells adjacent to an animal into prey, mates and free cells.
+     * @param index The animal.
+     */
+    private void scanNeighbourhood(int index)
+    {
+        byte species = store.getSpecies(index);
+        field.scanNeighbourhood(neighbourhood, store.getCell(index),
+                                species, store.getGender(index), FoodWeb.preyOf(species), rand);
+    }
+
+    /**
+     * Check whether or not an animal is to give birth at this step.
+     * New births will be made into the free cells of its neighbourhood,
+     * which must have been scanned.
+     * @param index The animal.
+     * @param breedingProbability The likelihood of each species breeding,
+     *                            by species id.
+     */
+    private void giveBirth(int index, double[] breedingProbability)
+    {
+        byte species = store.getSpecies(index);
+        int births = 0;
+        if(canBreed(index) && rand.nextDouble() <= breedingProbability[species]) {
+            births = rand.nextInt(SpeciesConfig.maxLitterSize[species]) + 1;
+        }
+        for(int b = 0; b < births && neighbourhood.takeFree(); b++) {
+            long where = neighbourhood.getCell();
+            spawn(species, 0, SpeciesConfig.foodLevel[species], randomGender(), where);
+        }
+    }
+
+    /**
+     * An animal can breed if it is a female of breeding age that is not
+     * too hungry.
+     * @param index The animal.
+     * @return true if the animal can breed.
+     */
+    private boolean canBreed(int index)
+    {
+        byte species = store.getSpecies(index);
+        return store.getGender(index) == 'F'
+            && store.getAge(index) >= SpeciesConfig.breedingAge[species]
+            && store.getFoodLevel(index) >= SpeciesConfig.breedingFoodLevel[species];
+    }
+
+    /**
+     * Spread a plant into free cells adjacent to it.
+     * @param where The cell of the plant.
+     * @param growingProbability The likelihood of the plant growing.
+     */
+    private void grow(long where, double growingProbability)
+    {
+        int size = 0;
+        if(rand.nextDouble() <= growingProbability) {
+            size = rand.nextInt(SpeciesConfig.maxGrowth[Species.PLANT]) + 1;
+        }
+        if(size > 0) {
+            startAdjacent(where);
+            while(size > 0 && adjacent.next()) {
+                if(adjacent.isFree()) {
+                    spawnPlant(currentCell(), 0);
+                    size--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scatter seeds over the field. Each seed takes root in an empty cell
+     * chosen at random, if there is one.
+     * @param where The cell of the plant.
+     * @param seedDispersalProbability The likelihood of seeds being spread.
+     */
+    private void seedDispersal(long where, double seedDispersalProbability)
+    {
+        int seeds = 0;
+        if(field.getAge(where) >= SpeciesConfig.breedingAge[Species.PLANT]
+           && rand.nextDouble() <= seedDispersalProbability) {
+            seeds = rand.nextInt(SpeciesConfig.maxSeeds[Species.PLANT]) + 1;
+        }
+        for(int seed = 0; seed < seeds; seed++) {
+            if(rand.nextDouble() >= SpeciesConfig.seedGrowingProbability[Species.PLANT]) {
+                holdSeed(where);
+            }
+        }
+    }
+
+    /**
+     * Plant a seed in an empty cell of the field chosen at random.
+     */
+    private void plantSeed()
+    {
+        long where = field.randomFreeCell(rand);
+        if(where >= 0) {
+            spawnPlant(where, rand.nextInt(SpeciesConfig.maxInitialWater[Species.PLANT]) + 1);
+        }
+    }
+
+    /**
+     * Keep a seed scattered during a band until the band is joined, when
+     * the empty cell it takes root in is chosen.
+     * @param where The cell of the plant that scattered it.
+     */
+    private void holdSeed(long where)
+    {
+        if(seedCount == seeds.length) {
+            seeds = Arrays.copyOf(seeds, seedCount * 2);
+        }
+        seeds[seedCount++] = where;
+    }
+
+    /**
+     * Add a new entity to the store and the field. It takes the slot, and
+     * the id, of a dead animal of its species if the band has one, and
+     * otherwise the next slot of the band's block, taking a new block
+     * from the store when it is full.
+     */
+    private void spawn(byte species, int age, int food, char gender, long where)
+    {
+        births++;
+        if(freeSlotCount[species] > 0) {
+            int index = freeSlots[species][--freeSlotCount[species]];
+            store.revive(index, species, age, food, gender, where);
+            reusedBirths++;
+            changed(index);
+            return;
+        }
+        if(nextSlot == slotLimit) {
+            nextSlot = store.reserveBlock();
+            slotLimit = nextSlot + EntityStore.BLOCK_SIZE;
+        }
+        if(blockBirthCount == blockBirths.length) {
+            blockBirths = Arrays.copyOf(blockBirths, blockBirthCount * 2);
+        }
+        blockBirths[blockBirthCount++] = nextSlot;
+        store.set(nextSlot, species, age, food, gender, where);
+        changed(nextSlot++);
+    }
+
+    /**
+     * Add a new plant to the field. It starts at age zero, and does not
+     * run until the next step.
+     * @param where The cell of the plant.
+     * @param water The water level of the plant.
+     */
+    private void spawnPlant(long where, int water)
+    {
+        field.placePlant(where, water, 0);
+        field.unmark(where);
+    }
+
+    /**
+     * Move an entity to another cell of the field.
+     */
+    private void move(int index, long where)
+    {
+        store.move(index, where);
+    }
+
+    /**
+     * Kill an entity and remove it from the field.
+     */
+    private void kill(int index)
+    {
+        store.kill(index);
+        changed(index);
+    }
+
+    /**
+     * Note that an entity has been born, fed or killed, so that its
+     * timers are set again at the end of the step or band.
+     * @param index The entity.
+     */
+    private void changed(int index)
+    {
+        if(changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = index;
+    }
+
+    /**
+     * Start visiting the cells adjacent to the given one in a random order.
+     * @param where The cell.
+     */
+    private void startAdjacent(long where)
+    {
+        adjacent.start(field, where, rand);
+    }
+
+    /**
+     * @return The cell the adjacent cursor is on.
+     */
+    private long currentCell()
+    {
+        return adjacent.getCell();
+    }
+
+    /**
+     * @return A random gender, F = Female, M = Male.
+     */
+    private char randomGender()
+    {
+        return "MF".charAt(rand.nextInt(2));
+    }
+
+    /**
+     * Record the phase and the weather for the current step.
+     */
+    private void setConditions(Environment.Phase phase, Weather weather)
+    {
+        day = phase == Environment.Phase.DAY;
+        sunny = weather == Weather.SUNNY;
+        windy = weather == Weather.WINDY;
+        rainy = weather == Weather.RAINY;
+        activityRow = SpeciesConfig.activityRow(phase, weather);
+        activeSpecies = SpeciesConfig.activeSpecies(phase, weather);
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.Arrays;
+
+/**
+ * A hierarchical timing wheel, holding timers that expire at a given tick
+ * of a clock. Each level of the wheel has 64 slots; a slot of the first
+ * level holds the timers of a single tick, and a slot of each level above
+ * holds 64 slots' worth of the level below. A timer is filed in the
+ * lowest level whose span reaches its tick, and is moved down a level
+ * each time the clock enters the slot it is filed in, so scheduling,
+ * cancelling and expiring a timer each take constant time however far
+ * ahead it is.
+ *
+ * A timer carries an int handle chosen by the caller. The timers are kept
+ * in primitive arrays and are reused once they expire or are cancelled,
+ * so the wheel makes no garbage.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public class TimingWheel
+{
+    // The number of bits of the tick covered by each level.
+    private static final int SLOT_BITS = 6;
+    // The number of slots in each level.
+    private static final int SLOTS = 1 << SLOT_BITS;
+    // The number of levels, enough to cover any tick.
+    private static final int LEVELS = (64 + SLOT_BITS - 1) / SLOT_BITS;
+    // The number of timers the wheel can hold before it first grows.
+    private static final int INITIAL_CAPACITY = 256;
+    // Marks the end of a list of timers.
+    private static final int NONE = -1;
+
+    // The first timer filed in each slot, level after level.
+    private final int[] heads;
+    // The handle, tick and slot of each timer.
+    private int[] handle;
+    private long[] due;
+    private int[] slot;
+    // The timers before and after each timer in its slot. The free timers
+    // are listed through next.
+    private int[] next;
+    private int[] previous;
+    // The first free timer.
+    private int free;
+    // The current tick of the clock.
+    private long now;
+
+    // The handles of the timers that expired on the last tick.
+    private int[] expired;
+    private int expiredCount;
+
+    /**
+     * Create an empty wheel, with its clock at tick 0.
+     */
+    public TimingWheel()
+    {
+        heads = new int[LEVELS * SLOTS];
+        expired = new int[16];
+        clear();
+    }
+
+    /**
+     * Remove every timer and put the clock back to tick 0.
+     */
+    public void clear()
+    {
+        clear(0);
+    }
+
+    /**
+     * Remove every timer and set the clock to the given tick.
+     * @param tick The new tick of the clock.
+     */
+    public void clear(long tick)
+    {
+        Arrays.fill(heads, NONE);
+        handle = new int[INITIAL_CAPACITY];
+        due = new long[INITIAL_CAPACITY];
+        slot = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        previous = new int[INITIAL_CAPACITY];
+        free = NONE;
+        freeTimers(0, INITIAL_CAPACITY);
+        now = tick;
+        expiredCount = 0;
+    }
+
+    /**
+     * Set a timer.
+     * @param timerHandle The handle of the timer, returned when it expires.
+     * @param tick The tick the timer expires at. A tick that has already
+     *             passed is taken as the next one.
+     * @return The timer, for cancel().
+     */
+    public int schedule(int timerHandle, long tick)
+    {
+        if(free == NONE) {
+            int capacity = handle.length;
+            handle = Arrays.copyOf(handle, capacity * 2);
+            due = Arrays.copyOf(due, capacity * 2);
+            slot = Arrays.copyOf(slot, capacity * 2);
+            next = Arrays.copyOf(next, capacity * 2);
+            previous = Arrays.copyOf(previous, capacity * 2);
+            freeTimers(capacity, capacity * 2);
+        }
+        int timer = free;
+        free = next[timer];
+        handle[timer] = timerHandle;
+        due[timer] = Math.max(tick, now + 1);
+        file(timer);
+        return timer;
+    }
+
+    /**
+     * Cancel a timer that has not yet expired.
+     * @param timer The timer, as returned by schedule().
+     */
+    public void cancel(int timer)
+    {
+        unlink(timer);
+        next[timer] = free;
+        free = timer;
+    }
+
+    /**
+     * Move the clock on by one tick. The timers due at the new tick are
+     * removed from the wheel, and their handles can be read with
+     * getExpired().
+     * @return The number of timers that expired.
+     */
+    public int advance()
+    {
+        now++;
+        expiredCount = 0;
+        for(int level = LEVELS - 1; level > 0; level--) {
+            if((now & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                cascade(level * SLOTS + ((int) (now >>> (level * SLOT_BITS)) & (SLOTS - 1)));
+            }
+        }
+        int timer = heads[(int) now & (SLOTS - 1)];
+        while(timer != NONE) {
+            int following = next[timer];
+            if(expiredCount == expired.length) {
+                expired = Arrays.copyOf(expired, expiredCount * 2);
+            }
+            expired[expiredCount++] = handle[timer];
+            cancel(timer);
+            timer = following;
+        }
+        return expiredCount;
+    }
+
+    /**
+     * @param n A number less than the count returned by the last advance().
+     * @return The handle of the nth timer that expired on the last tick.
+     */
+    public int getExpired(int n)
+    {
+        return expired[n];
+    }
+
+    /**
+     * @return The current tick of the clock.
+     */
+    public long getNow()
+    {
+        return now;
+    }
+
+    /**
+     * File a timer in the slot for its tick: the lowest level above which
+     * the tick and the clock agree.
+     * @param timer The timer.
+     */
+    private void file(int timer)
+    {
+        long tick = due[timer];
+        int level = (63 - Long.numberOfLeadingZeros(tick ^ now)) / SLOT_BITS;
+        int index = level * SLOTS + ((int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        slot[timer] = index;
+        previous[timer] = NONE;
+        next[timer] = heads[index];
+        if(heads[index] != NONE) {
+            previous[heads[index]] = timer;
+        }
+        heads[index] = timer;
+    }
+
+    /**
+     * Take a timer out of its slot.
+     * @param timer The timer.
+     */
+    private void unlink(int timer)
+    {
+        if(previous[timer] != NONE) {
+            next[previous[timer]] = next[timer];
+        }
+        else {
+            heads[slot[timer]] = next[timer];
+        }
+        if(next[timer] != NONE) {
+            previous[next[timer]] = previous[timer];
+        }
+    }
+
+    /**
+     * Refile every timer of a slot that the clock has just entered, which
+     * moves each one to a lower level.
+     * @param index The slot.
+     */
+    private void cascade(int index)
+    {
+        int timer = heads[index];
+        heads[index] = NONE;
+        while(timer != NONE) {
+            int following = next[timer];
+            file(timer);
+            timer = following;
+        }
+    }
+
+    /**
+     * Add a range of unused timers to the free list.
+     * @param from The first timer.
+     * @param to The timer after the last.
+     */
+    private void freeTimers(int from, int to)
+    {
+        for(int timer = to - 1; timer >= from; timer--) {
+            next[timer] = free;
+            free = timer;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * The kinds of weather in the simulation. The weather is chosen at random
+ * at the start of each day and each night, and decides which behaviour
+ * each species follows.
+ *
+ * @author Aamir Faaiz
+ * @version 2019-FEB
+ */
+public enum Weather
+{
+    SUNNY("Sunny"), RAINY("Rainy"), WINDY("Windy");
+
+    // The name of the weather as it is shown to the user.
+    private final String name;
+
+    /**
+     * Create a kind of weather.
+     * @param name The name shown to the user.
+     */
+    Weather(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the weather as it is shown to the user.
+     */
+    public String toString()
+    {
+        return name;
+    }
+}